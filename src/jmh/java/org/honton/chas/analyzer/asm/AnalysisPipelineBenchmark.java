@@ -0,0 +1,70 @@
+package org.honton.chas.analyzer.asm;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.plugin.logging.Log;
+import org.honton.chas.analyzer.api.AnalysisMode;
+import org.honton.chas.benchmark.ClassCounter;
+import org.honton.chas.benchmark.QuietLog;
+import org.honton.chas.benchmark.SyntheticJar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The throughput of listing and analyzing a whole jar. Each operation handles every class of the
+ * jar; the {@code classes} counter reports classes per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AnalysisPipelineBenchmark {
+  @Param({"SMALL", "LARGE", "NESTED", "MULTI_RELEASE", "ASM"})
+  public SyntheticJar jar;
+
+  private final Log log = new QuietLog();
+  private final AsmLocationCollector locationCollector = new AsmLocationCollector();
+  private Path location;
+
+  @Setup
+  public void setUp() throws IOException {
+    location = jar.create(Files.createTempDirectory("benchmark"));
+  }
+
+  /** The analyzer for each mode; listing does not depend on the mode. */
+  @State(Scope.Benchmark)
+  public static class Analyzer {
+    @Param({"FULL", "FAST"})
+    public AnalysisMode analysisMode;
+
+    private AsmDependencyAnalyzer dependencyAnalyzer;
+
+    @Setup
+    public void setUp() {
+      dependencyAnalyzer = new AsmDependencyAnalyzer(analysisMode);
+    }
+  }
+
+  @Benchmark
+  public Set<String> locationCollector(ClassCounter counter) {
+    Set<String> classNames = locationCollector.list(location, log);
+    counter.classes += classNames.size();
+    return classNames;
+  }
+
+  @Benchmark
+  public Map<String, Set<String>> dependencyAnalyzer(Analyzer analyzer, ClassCounter counter) {
+    Map<String, Set<String>> dependencies = analyzer.dependencyAnalyzer.analyze(location, log);
+    counter.classes += dependencies.size();
+    return dependencies;
+  }
+}
@@ -0,0 +1,73 @@
+package org.honton.chas.analyzer.asm.visitors;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.honton.chas.analyzer.api.AnalysisMode;
+import org.honton.chas.benchmark.SyntheticJar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The throughput of the per-class hot path. Each operation parses one class of the jar, so the
+ * score is in classes per second, and {@code gc.alloc.rate.norm} of {@code -prof gc} is in bytes
+ * allocated per class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ClassThroughputBenchmark {
+  @Param({"SMALL", "LARGE", "NESTED", "MULTI_RELEASE", "ASM"})
+  public SyntheticJar jar;
+
+  private byte[][] byteCodes;
+  private String[] classNames;
+  private int next;
+
+  @Setup
+  public void setUp() throws IOException {
+    Map<String, byte[]> classes =
+        ClassBytes.ofJar(jar.create(Files.createTempDirectory("benchmark")));
+    byteCodes = classes.values().toArray(new byte[0][]);
+    classNames = classes.keySet().toArray(new String[0]);
+  }
+
+  private int nextClass() {
+    int current = next;
+    next = current + 1 == byteCodes.length ? 0 : current + 1;
+    return current;
+  }
+
+  @Benchmark
+  public Object constantPoolParser() {
+    return ConstantPoolParser.getConstantPoolClassReferences(byteCodes[nextClass()]);
+  }
+
+  @Benchmark
+  public Object fullAnalysis() {
+    return analyze(AnalysisMode.FULL);
+  }
+
+  @Benchmark
+  public Object fastAnalysis() {
+    return analyze(AnalysisMode.FAST);
+  }
+
+  private Object analyze(AnalysisMode analysisMode) {
+    int current = nextClass();
+    DependencyClassFileVisitor visitor =
+        new DependencyClassFileVisitor(new HashSet<>(), analysisMode);
+    visitor.visitClass(classNames[current], ByteBuffer.wrap(byteCodes[current]));
+    return visitor.getDependencies();
+  }
+
+}
@@ -0,0 +1,61 @@
+package org.honton.chas.analyzer.asm.visitors;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.objectweb.asm.ClassReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compare ConstantPoolParser with the legacy parser, which decoded every CONSTANT_Utf8 into a map.
+ * Each invocation parses the constant pool of every class of the asm jar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConstantPoolParserBenchmark {
+  private final List<byte[]> byteCodes = new ArrayList<>();
+
+  @Setup
+  public void setUp() {
+    byteCodes.addAll(ClassBytes.ofJar(ClassBytes.jarOf(ClassReader.class)).values());
+  }
+
+  @Benchmark
+  public void legacyClassReferences(Blackhole blackhole) {
+    for (byte[] byteCode : byteCodes) {
+      blackhole.consume(LegacyConstantPoolParser.getConstantPoolClassReferences(byteCode));
+    }
+  }
+
+  @Benchmark
+  public void classReferences(Blackhole blackhole) {
+    for (byte[] byteCode : byteCodes) {
+      blackhole.consume(ConstantPoolParser.getConstantPoolClassReferences(byteCode));
+    }
+  }
+
+  @Benchmark
+  public void legacyTypeReferences(Blackhole blackhole) {
+    for (byte[] byteCode : byteCodes) {
+      blackhole.consume(
+          LegacyConstantPoolParser.getConstantPoolTypeReferences(ByteBuffer.wrap(byteCode)));
+    }
+  }
+
+  @Benchmark
+  public void typeReferences(Blackhole blackhole) {
+    for (byte[] byteCode : byteCodes) {
+      blackhole.consume(
+          ConstantPoolParser.getConstantPoolTypeReferences(ByteBuffer.wrap(byteCode)));
+    }
+  }
+}
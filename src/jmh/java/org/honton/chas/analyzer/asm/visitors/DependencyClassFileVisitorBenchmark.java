@@ -0,0 +1,79 @@
+package org.honton.chas.analyzer.asm.visitors;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.honton.chas.analyzer.api.AnalysisMode;
+import org.objectweb.asm.ClassReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compare the analysis of DependencyClassFileVisitor with the two pass reference analysis, and
+ * with the fast analysis mode. Each invocation analyzes every class of the asm jar. Setup fails
+ * unless the full and two pass analyses produce the same dependencies for every class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DependencyClassFileVisitorBenchmark {
+  private final List<String> classNames = new ArrayList<>();
+  private final List<byte[]> byteCodes = new ArrayList<>();
+
+  private static DependencyClassFileVisitor visit(String className, byte[] byteCode) {
+    return visit(className, byteCode, AnalysisMode.FULL);
+  }
+
+  private static DependencyClassFileVisitor visit(
+      String className, byte[] byteCode, AnalysisMode analysisMode) {
+    DependencyClassFileVisitor visitor =
+        new DependencyClassFileVisitor(new HashSet<>(), analysisMode);
+    visitor.visitClass(className, new ByteArrayInputStream(byteCode));
+    return visitor;
+  }
+
+  @Setup
+  public void setUp() {
+    Map<String, byte[]> classes = ClassBytes.ofJar(ClassBytes.jarOf(ClassReader.class));
+    classes.forEach(
+        (className, byteCode) -> {
+          if (!TwoPassClassParser.getDependencies(byteCode)
+              .equals(visit(className, byteCode).getDependencies())) {
+            throw new IllegalStateException("Analysis differs for " + className);
+          }
+          classNames.add(className);
+          byteCodes.add(byteCode);
+        });
+  }
+
+  @Benchmark
+  public void twoPass(Blackhole blackhole) {
+    for (byte[] byteCode : byteCodes) {
+      blackhole.consume(TwoPassClassParser.getDependencies(byteCode));
+    }
+  }
+
+  @Benchmark
+  public void dependencyClassFileVisitor(Blackhole blackhole) {
+    for (int i = 0; i < byteCodes.size(); ++i) {
+      blackhole.consume(visit(classNames.get(i), byteCodes.get(i)).getDependencies());
+    }
+  }
+
+  @Benchmark
+  public void fastAnalysisMode(Blackhole blackhole) {
+    for (int i = 0; i < byteCodes.size(); ++i) {
+      blackhole.consume(
+          visit(classNames.get(i), byteCodes.get(i), AnalysisMode.FAST).getDependencies());
+    }
+  }
+}
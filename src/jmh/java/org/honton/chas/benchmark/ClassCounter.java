@@ -0,0 +1,22 @@
+package org.honton.chas.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the classes processed by a benchmark that handles a whole jar per operation. JMH reports
+ * the count as a rate, in classes per second.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class ClassCounter {
+  public long classes;
+
+  @Setup(Level.Iteration)
+  public void reset() {
+    classes = 0;
+  }
+}
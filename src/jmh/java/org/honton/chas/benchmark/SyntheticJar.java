@@ -0,0 +1,216 @@
+package org.honton.chas.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * The jars analyzed by the benchmarks. The synthetic jars are generated with ASM; each class
+ * references several other classes of its jar through fields, signatures, and method bodies.
+ */
+public enum SyntheticJar {
+  /** A few classes. */
+  SMALL(50),
+  /** Many classes in many packages. */
+  LARGE(5000),
+  /** Classes with a chain of deeply nested inner classes. */
+  NESTED(200),
+  /** A multi-release jar, with a Java 11 version of each class. */
+  MULTI_RELEASE(500),
+  /** The asm jar, as a real-world jar. */
+  ASM(0);
+
+  private static final int NESTING_DEPTH = 8;
+  private static final int PACKAGES = 20;
+  private static final String OBJECT = "java/lang/Object";
+
+  private final int classCount;
+
+  SyntheticJar(int classCount) {
+    this.classCount = classCount;
+  }
+
+  /**
+   * The internal names of the top-level classes of the jar.
+   *
+   * @return The class names; empty for the real-world jar
+   */
+  public List<String> classNames() {
+    List<String> classNames = new ArrayList<>(classCount);
+    String prefix = "synthetic/" + name().toLowerCase() + "/p";
+    for (int i = 0; i < classCount; ++i) {
+      classNames.add(prefix + i % PACKAGES + "/C" + i);
+    }
+    return classNames;
+  }
+
+  /**
+   * Create the jar.
+   *
+   * @param directory The directory in which to write a synthetic jar
+   * @return The location of the jar
+   */
+  public Path create(Path directory) {
+    if (this == ASM) {
+      try {
+        return Paths.get(
+            ClassReader.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+      } catch (URISyntaxException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    Path jar = directory.resolve(name().toLowerCase() + ".jar");
+    List<String> classNames = classNames();
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    if (this == MULTI_RELEASE) {
+      manifest.getMainAttributes().put(Attributes.Name.MULTI_RELEASE, "true");
+    }
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar), manifest)) {
+      for (int i = 0; i < classNames.size(); ++i) {
+        List<String> references = references(classNames, i);
+        String className = classNames.get(i);
+        if (this == NESTED) {
+          writeNested(out, className, references);
+        } else {
+          write(out, "", className, references, null);
+        }
+        if (this == MULTI_RELEASE) {
+          List<String> versioned = new ArrayList<>(references);
+          versioned.add("java/lang/invoke/VarHandle");
+          write(out, "META-INF/versions/11/", className, versioned, null);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return jar;
+  }
+
+  private static List<String> references(List<String> classNames, int i) {
+    int size = classNames.size();
+    List<String> references = new ArrayList<>();
+    references.add(classNames.get((i + 1) % size));
+    references.add(classNames.get((i + 7) % size));
+    references.add(classNames.get(i * 31 % size));
+    references.add("java/util/concurrent/ConcurrentHashMap");
+    return references;
+  }
+
+  private static void writeNested(JarOutputStream out, String className, List<String> references)
+      throws IOException {
+    String outer = null;
+    String name = className;
+    for (int depth = 0; depth <= NESTING_DEPTH; ++depth) {
+      String inner = depth < NESTING_DEPTH ? name + "$I" + (depth + 1) : null;
+      List<String> nestedReferences = new ArrayList<>(references);
+      if (inner != null) {
+        nestedReferences.add(inner);
+      }
+      write(out, "", name, nestedReferences, outer);
+      outer = name;
+      name = inner;
+    }
+  }
+
+  private static void write(
+      JarOutputStream out, String prefix, String className, List<String> references, String outer)
+      throws IOException {
+    out.putNextEntry(new JarEntry(prefix + className + ".class"));
+    out.write(generate(className, references, outer));
+    out.closeEntry();
+  }
+
+  /**
+   * Generate a class that references other classes through its fields, field signatures, method
+   * descriptor, and method body.
+   *
+   * @param className The internal name of the class
+   * @param references The internal names of the referenced classes
+   * @param outer The internal name of the enclosing class, or null
+   * @return The class file bytes
+   */
+  public static byte[] generate(String className, List<String> references, String outer) {
+    ClassWriter cw = new ClassWriter(0);
+    cw.visit(Opcodes.V11, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, className, null, OBJECT, null);
+    if (outer != null) {
+      cw.visitInnerClass(
+          className,
+          outer,
+          className.substring(outer.length() + 1),
+          Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC);
+    }
+    for (int i = 0; i < references.size(); ++i) {
+      String descriptor = 'L' + references.get(i) + ';';
+      cw.visitField(Opcodes.ACC_PRIVATE, "f" + i, descriptor, null, null).visitEnd();
+      String signature = "Ljava/util/List<" + descriptor + ">;";
+      cw.visitField(Opcodes.ACC_PRIVATE, "l" + i, "Ljava/util/List;", signature, null).visitEnd();
+    }
+
+    MethodVisitor init = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+    init.visitCode();
+    init.visitVarInsn(Opcodes.ALOAD, 0);
+    init.visitMethodInsn(Opcodes.INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+    init.visitInsn(Opcodes.RETURN);
+    init.visitMaxs(1, 1);
+    init.visitEnd();
+
+    String parameter = 'L' + references.get(0) + ';';
+    MethodVisitor mv =
+        cw.visitMethod(
+            Opcodes.ACC_PUBLIC, "m", '(' + parameter + ")Ljava/lang/Object;", null, null);
+    mv.visitCode();
+    for (String reference : references) {
+      mv.visitTypeInsn(Opcodes.NEW, reference);
+      mv.visitInsn(Opcodes.DUP);
+      mv.visitMethodInsn(Opcodes.INVOKESPECIAL, reference, "<init>", "()V", false);
+      mv.visitInsn(Opcodes.POP);
+    }
+    mv.visitLdcInsn(Type.getObjectType(className));
+    mv.visitInsn(Opcodes.ARETURN);
+    mv.visitMaxs(2, 2);
+    mv.visitEnd();
+
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+
+  /**
+   * Create a jar of application classes that reference classes of other jars.
+   *
+   * @param directory The directory in which to write the jar
+   * @param references The internal names of the classes referenced by the application
+   * @return The location of the jar
+   */
+  public static Path createApplication(Path directory, List<String> references) {
+    Path jar = directory.resolve("application.jar");
+    int classCount = 100;
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+      for (int i = 0; i < classCount; ++i) {
+        List<String> classReferences = new ArrayList<>();
+        for (int r = i; r < references.size(); r += classCount) {
+          classReferences.add(references.get(r));
+        }
+        classReferences.add(OBJECT);
+        write(out, "", "application/A" + i, classReferences, null);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return jar;
+  }
+}
@@ -0,0 +1,87 @@
+package org.honton.chas.dependency.analyzescope;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.plugin.logging.Log;
+import org.honton.chas.analyzer.api.AnalysisMode;
+import org.honton.chas.analyzer.asm.AsmDependencyAnalyzer;
+import org.honton.chas.analyzer.asm.AsmLocationCollector;
+import org.honton.chas.benchmark.QuietLog;
+import org.honton.chas.benchmark.SyntheticJar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The end-to-end analysis of an application jar that references classes of every synthetic jar,
+ * declared as its dependencies, without the persistent cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AnalyzeClassUsageBenchmark {
+  @Param({"FULL", "FAST"})
+  public AnalysisMode analysisMode;
+
+  private final Log log = new QuietLog();
+  private final Set<Artifact> dependencies = new LinkedHashSet<>();
+  private final ForkJoinPool pool = new ForkJoinPool();
+  private Artifact application;
+  private AsmDependencyAnalyzer dependencyAnalyzer;
+
+  private static Artifact artifact(String artifactId, Path file) {
+    Artifact artifact =
+        new DefaultArtifact(
+            "benchmark", artifactId, "1.0", "compile", "jar", null, new DefaultArtifactHandler());
+    artifact.setFile(file.toFile());
+    return artifact;
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    Path directory = Files.createTempDirectory("benchmark");
+    List<String> references = new ArrayList<>();
+    for (SyntheticJar jar : SyntheticJar.values()) {
+      dependencies.add(artifact(jar.name().toLowerCase(), jar.create(directory)));
+      List<String> classNames = jar.classNames();
+      for (int i = 0; i < classNames.size(); i += 10) {
+        references.add(classNames.get(i));
+      }
+    }
+    application =
+        artifact("application", SyntheticJar.createApplication(directory, references));
+    dependencyAnalyzer = new AsmDependencyAnalyzer(analysisMode);
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public AnalyzeClassUsage analyzeClassUsage() {
+    try (AnalyzeClassUsage analyzeClassUsage =
+        new AnalyzeClassUsage(new AsmLocationCollector(), dependencyAnalyzer, pool)) {
+      analyzeClassUsage.addDeclaredDependencies(log, dependencies);
+      analyzeClassUsage.addUsedClassNames(log, application);
+      analyzeClassUsage.setDeclaredDependencies(dependencies);
+      return analyzeClassUsage;
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package org.honton.chas.analyzer.api;
+
+/** How deeply a class file is examined to find the classes it references. */
+public enum AnalysisMode {
+  /**
+   * Only the constant pool is read: the CONSTANT_Class entries, and the class names within every
+   * UTF8 constant shaped like a descriptor or signature. Method bodies are never visited. The
+   * result may include types of invoked members, which the full analysis ignores.
+   */
+  FAST,
+
+  /** The constant pool and every declaration, signature, annotation and instruction is visited. */
+  FULL,
+
+  /**
+   * Only the API is visited: the class header, and the declarations, signatures and annotations of
+   * public and protected members. Neither the constant pool nor method bodies are read. This
+   * suits the classes of dependencies, whose API alone is needed to compile against them.
+   */
+  API
+}
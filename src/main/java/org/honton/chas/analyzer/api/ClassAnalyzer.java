@@ -0,0 +1,23 @@
+package org.honton.chas.analyzer.api;
+
+import java.io.Closeable;
+import java.util.Set;
+
+/**
+ * Gets the set of classes referenced by individual classes of a library. Classes are analyzed as
+ * they are requested.
+ */
+public interface ClassAnalyzer extends Closeable {
+
+  /**
+   * Find all class names that are referenced by a class, or its inner classes.
+   *
+   * @param className The name of the class to analyze
+   * @return The set of classes required by the class, or null if the class is not present
+   */
+  Set<String> analyze(String className);
+
+  /** Release any resources held open for analysis. */
+  @Override
+  default void close() {}
+}
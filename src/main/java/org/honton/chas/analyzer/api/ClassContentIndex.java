@@ -0,0 +1,44 @@
+package org.honton.chas.analyzer.api;
+
+import java.util.Set;
+
+/**
+ * The classes required by individual class files, keyed by the content of each class file. A class
+ * file is identified by its path within a jar, and the CRC32 and size of its bytes as recorded in
+ * the central directory, so identical class files of different jars share one analysis.
+ */
+public interface ClassContentIndex {
+  /** An index which holds nothing. */
+  ClassContentIndex NONE =
+      new ClassContentIndex() {
+        @Override
+        public Set<String> get(String path, long crc, long size) {
+          return null;
+        }
+
+        @Override
+        public void put(String path, long crc, long size, Set<String> classes) {
+          // nothing is held
+        }
+      };
+
+  /**
+   * Find the classes required by a class file.
+   *
+   * @param path The path of the class file within its jar
+   * @param crc The CRC32 of the class file bytes
+   * @param size The number of class file bytes
+   * @return The set of classes required by the class file, or null if not held
+   */
+  Set<String> get(String path, long crc, long size);
+
+  /**
+   * Hold the classes required by a class file.
+   *
+   * @param path The path of the class file within its jar
+   * @param crc The CRC32 of the class file bytes
+   * @param size The number of class file bytes
+   * @param classes The set of classes required by the class file
+   */
+  void put(String path, long crc, long size, Set<String> classes);
+}
@@ -0,0 +1,69 @@
+package org.honton.chas.analyzer.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A reusable buffer of class file bytes, so reading a class does not allocate. Class files are
+ * copied rather than memory-mapped, since a mapped file cannot be replaced or deleted on some
+ * platforms while the mapping lives. The returned buffer is only valid until the next read.
+ */
+class ClassFileBuffer {
+  private static final int INITIAL_CAPACITY = 16 * 1024;
+
+  private byte[] bytes = new byte[INITIAL_CAPACITY];
+
+  /**
+   * Read a class file.
+   *
+   * @param file The class file
+   * @return The class file bytes
+   * @throws IOException if the file cannot be read
+   */
+  ByteBuffer read(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      ByteBuffer buffer = ByteBuffer.wrap(capacity((int) size), 0, (int) size);
+      int read = 0;
+      while (buffer.hasRemaining() && read >= 0) {
+        read = channel.read(buffer);
+      }
+      return buffer.flip();
+    }
+  }
+
+  /**
+   * Read the remaining contents of a stream.
+   *
+   * @param in The stream of class file bytes
+   * @param size The expected size, or -1 if not known
+   * @return The class file bytes
+   * @throws IOException if the stream cannot be read
+   */
+  ByteBuffer read(InputStream in, long size) throws IOException {
+    byte[] buffer = capacity((int) Math.max(size, 0));
+    int length = 0;
+    int read;
+    do {
+      if (length == buffer.length) {
+        buffer = capacity(length * 2);
+      }
+      read = in.readNBytes(buffer, length, buffer.length - length);
+      length += read;
+    } while (read > 0);
+    return ByteBuffer.wrap(buffer, 0, length);
+  }
+
+  private byte[] capacity(int size) {
+    if (bytes.length < size) {
+      byte[] larger = new byte[Math.max(size, bytes.length * 2)];
+      System.arraycopy(bytes, 0, larger, 0, bytes.length);
+      bytes = larger;
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,129 @@
+package org.honton.chas.analyzer.api;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import org.honton.chas.analyzer.spi.ClassFileVisitor;
+
+/**
+ * Parse the class files of a directory on several threads while their paths are still being found.
+ * Paths are handed to the parsers through a bounded queue. When the queue is full, the finder
+ * parses the path itself, so the pipeline completes even when no thread of the executor is free.
+ */
+class ClassFilePipeline {
+  // marks the end of the paths; no class file has an empty path
+  private static final String END = "";
+  private static final int PATHS_PER_PARSER = 64;
+
+  private final Path directory;
+  private final Function<String, ClassFileVisitor> visitorFactory;
+  private final BiConsumer<String, IOException> handler;
+  private final int parsers;
+  private final BlockingQueue<String> queue;
+  private final ClassFileBuffer buffer = new ClassFileBuffer();
+  // paths queued but not yet parsed
+  private final AtomicInteger pending = new AtomicInteger();
+  private volatile RuntimeException failure;
+
+  /**
+   * Create a pipeline.
+   *
+   * @param directory The directory holding the class files
+   * @param visitorFactory The factory for visitors, which must be safe to use from many threads
+   * @param handler the method which is invoked upon any IOException; the String parameter is the
+   *     path of the class file
+   * @param parsers The number of parsing tasks to start
+   */
+  ClassFilePipeline(
+      Path directory,
+      Function<String, ClassFileVisitor> visitorFactory,
+      BiConsumer<String, IOException> handler,
+      int parsers) {
+    this.directory = directory;
+    this.visitorFactory = visitorFactory;
+    this.handler = handler;
+    this.parsers = parsers;
+    queue = new ArrayBlockingQueue<>(parsers * PATHS_PER_PARSER);
+  }
+
+  /**
+   * Start the parsing tasks.
+   *
+   * @param executor The executor running the parsing tasks
+   */
+  void start(Executor executor) {
+    for (int i = 0; i < parsers; ++i) {
+      executor.execute(this::parse);
+    }
+  }
+
+  /**
+   * Hand a found class file to the parsers.
+   *
+   * @param path The path of the class file, relative to the directory and separated by <code>/
+   *     </code>
+   */
+  void accept(String path) {
+    pending.incrementAndGet();
+    if (!queue.offer(path)) {
+      pending.decrementAndGet();
+      ClassFileVisitorUtils.acceptClassInDirectory(
+          directory, path, visitorFactory, buffer, handler);
+    }
+  }
+
+  /** Parse the paths remaining after the last is found, and wait for the parsers to finish. */
+  void finish() {
+    for (String path; (path = queue.poll()) != null; ) {
+      parsed(path, buffer);
+    }
+    // the queue stays empty, so there is room for each parser's end marker
+    for (int i = 0; i < parsers; ++i) {
+      queue.add(END);
+    }
+    synchronized (this) {
+      while (pending.get() > 0) {
+        try {
+          wait();
+        } catch (InterruptedException interruptedException) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void parse() {
+    ClassFileBuffer parserBuffer = new ClassFileBuffer();
+    try {
+      for (String path; !END.equals(path = queue.take()); ) {
+        parsed(path, parserBuffer);
+      }
+    } catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void parsed(String path, ClassFileBuffer classFileBuffer) {
+    try {
+      ClassFileVisitorUtils.acceptClassInDirectory(
+          directory, path, visitorFactory, classFileBuffer, handler);
+    } catch (RuntimeException runtimeException) {
+      failure = runtimeException;
+    } finally {
+      if (pending.decrementAndGet() == 0) {
+        synchronized (this) {
+          notifyAll();
+        }
+      }
+    }
+  }
+}
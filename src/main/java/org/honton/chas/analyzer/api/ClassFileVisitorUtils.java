@@ -22,14 +22,26 @@ package org.honton.chas.analyzer.api;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
+import java.util.zip.ZipFile;
 import lombok.experimental.UtilityClass;
-import org.codehaus.plexus.util.DirectoryScanner;
 import org.honton.chas.analyzer.spi.ClassFileVisitor;
 
 /**
@@ -40,32 +52,233 @@ public final class ClassFileVisitorUtils {
 
   private static final String DOT_CLASS = ".class";
 
+  /** The release which selects only the base entries of a multi-release jar. */
+  public static final int BASE_RELEASE = 0;
+
+  /**
+   * Open a jar, selecting the entries of a release from a multi-release jar. Only the central
+   * directory is read; the entries of other releases are never read.
+   *
+   * @param jar The jar
+   * @param release The Java release, or {@link #BASE_RELEASE}
+   * @return The jar, whose versioned entries are those of the release
+   * @throws IOException if the jar cannot be read
+   */
+  public JarFile openJar(Path jar, int release) throws IOException {
+    // releases before 9 have no versioned entries
+    Runtime.Version version =
+        release < 9 ? JarFile.baseVersion() : Runtime.Version.parse(Integer.toString(release));
+    return new JarFile(jar.toFile(), false, ZipFile.OPEN_READ, version);
+  }
+
+  /**
+   * Analyze all classes in a directory or jar. Only the base entries of a multi-release jar are
+   * analyzed.
+   *
+   * @param path The directory or jar to scan for classes.
+   * @param visitorFactory The factory for visitors
+   * @param handler the method which is invoked upon any IOException; the String parameter is the
+   *     className, if known
+   */
+  public void accept(
+      Path path,
+      Function<String, ClassFileVisitor> visitorFactory,
+      BiConsumer<String, IOException> handler) {
+    accept(path, BASE_RELEASE, visitorFactory, handler);
+  }
+
   /**
    * Analyze all classes in a directory or jar.
    *
    * @param path The directory or jar to scan for classes.
+   * @param release The Java release whose entries of a multi-release jar are analyzed
    * @param visitorFactory The factory for visitors
    * @param handler the method which is invoked upon any IOException; the String parameter is the
    *     className, if known
    */
-  public  void accept(
+  public void accept(
       Path path,
+      int release,
       Function<String, ClassFileVisitor> visitorFactory,
       BiConsumer<String, IOException> handler) {
+    accept(path, release, visitorFactory, handler, null, 1);
+  }
+
+  /**
+   * Analyze all classes in a directory or jar. The class files of a directory are parsed by
+   * several tasks while the directory is still being walked. The class entries of a large jar are
+   * split into ranges, which are parsed by several tasks.
+   *
+   * @param path The directory or jar to scan for classes.
+   * @param release The Java release whose entries of a multi-release jar are analyzed
+   * @param visitorFactory The factory for visitors, which must be safe to use from many threads
+   *     when there is more than one parser
+   * @param handler the method which is invoked upon any IOException; the String parameter is the
+   *     className, if known
+   * @param executor The executor running the parsing tasks
+   * @param parsers The number of parsing tasks; one parses on the calling thread
+   */
+  public void accept(
+      Path path,
+      int release,
+      Function<String, ClassFileVisitor> visitorFactory,
+      BiConsumer<String, IOException> handler,
+      Executor executor,
+      int parsers) {
     if (Files.isDirectory(path)) {
-      acceptDirectory(path, visitorFactory, handler);
+      acceptDirectory(path, visitorFactory, handler, executor, parsers);
     } else if (Files.isReadable(path)) {
-      acceptJar(path, visitorFactory, handler);
+      acceptJar(path, release, visitorFactory, handler, executor, parsers);
     } else {
       throw new IllegalArgumentException(
           "Location " + path + " is not a directory and not a readable jar");
     }
   }
 
-  private  void acceptJar(
-      Path jar,
+  /**
+   * Analyze some of the classes in a directory.
+   *
+   * @param directory The directory holding the classes
+   * @param classPaths The paths of the class files to visit, relative to the directory and
+   *     separated by <code>/</code>
+   * @param visitorFactory The factory for visitors
+   * @param handler the method which is invoked upon any IOException; the String parameter is the
+   *     path of the class file
+   */
+  public void accept(
+      Path directory,
+      Collection<String> classPaths,
       Function<String, ClassFileVisitor> visitorFactory,
       BiConsumer<String, IOException> handler) {
+    accept(directory, classPaths, visitorFactory, handler, null, 1);
+  }
+
+  /**
+   * Analyze some of the classes in a directory, parsed by several tasks.
+   *
+   * @param directory The directory holding the classes
+   * @param classPaths The paths of the class files to visit, relative to the directory and
+   *     separated by <code>/</code>
+   * @param visitorFactory The factory for visitors, which must be safe to use from many threads
+   *     when there is more than one parser
+   * @param handler the method which is invoked upon any IOException; the String parameter is the
+   *     path of the class file
+   * @param executor The executor running the parsing tasks
+   * @param parsers The number of parsing tasks; one parses on the calling thread
+   */
+  public void accept(
+      Path directory,
+      Collection<String> classPaths,
+      Function<String, ClassFileVisitor> visitorFactory,
+      BiConsumer<String, IOException> handler,
+      Executor executor,
+      int parsers) {
+    if (parsers <= 1 || classPaths.size() <= 1) {
+      ClassFileBuffer buffer = new ClassFileBuffer();
+      for (String path : classPaths) {
+        acceptClassInDirectory(directory, path, visitorFactory, buffer, handler);
+      }
+      return;
+    }
+    ClassFilePipeline pipeline = new ClassFilePipeline(directory, visitorFactory, handler, parsers);
+    pipeline.start(executor);
+    try {
+      classPaths.forEach(pipeline::accept);
+    } finally {
+      pipeline.finish();
+    }
+  }
+
+  /**
+   * List the names of all classes in a directory or jar. The class contents are not read; for a
+   * jar, only the central directory is read. Only the base entries of a multi-release jar are
+   * listed.
+   *
+   * @param path The directory or jar to scan for classes.
+   * @param classNameConsumer The consumer of each class name found
+   * @param handler the method which is invoked upon any IOException; the String parameter is the
+   *     location
+   */
+  public void list(
+      Path path, Consumer<String> classNameConsumer, BiConsumer<String, IOException> handler) {
+    list(path, BASE_RELEASE, classNameConsumer, handler);
+  }
+
+  /**
+   * List the names of all classes in a directory or jar. The class contents are not read; for a
+   * jar, only the central directory is read.
+   *
+   * @param path The directory or jar to scan for classes.
+   * @param release The Java release whose entries of a multi-release jar are listed
+   * @param classNameConsumer The consumer of each class name found
+   * @param handler the method which is invoked upon any IOException; the String parameter is the
+   *     location
+   */
+  public void list(
+      Path path,
+      int release,
+      Consumer<String> classNameConsumer,
+      BiConsumer<String, IOException> handler) {
+    if (Files.isDirectory(path)) {
+      try {
+        walkDirectory(path, classPath -> classNameConsumer.accept(pathToClassName(classPath)));
+      } catch (IOException ioException) {
+        handler.accept(path.toString(), ioException);
+      }
+    } else if (Files.isReadable(path)) {
+      listJar(path, release, classNameConsumer, handler);
+    } else {
+      throw new IllegalArgumentException(
+          "Location " + path + " is not a directory and not a readable jar");
+    }
+  }
+
+  private void listJar(
+      Path jar,
+      int release,
+      Consumer<String> classNameConsumer,
+      BiConsumer<String, IOException> handler) {
+    try (JarFile jarFile = openJar(jar, release)) {
+      // versioned entries are named as the base entry they replace
+      Iterator<JarEntry> entries = jarFile.versionedStream().iterator();
+      while (entries.hasNext()) {
+        String path = entries.next().getName();
+        if (isClassPath(path)) {
+          classNameConsumer.accept(pathToClassName(path));
+        }
+      }
+    } catch (IOException ioException) {
+      handler.accept(jar.toString(), ioException);
+    }
+  }
+
+  private void acceptJar(
+      Path jar,
+      int release,
+      Function<String, ClassFileVisitor> visitorFactory,
+      BiConsumer<String, IOException> handler,
+      Executor executor,
+      int parsers) {
+    // random access is needed to select the entries of a release, or to parse ranges of entries
+    if (release != BASE_RELEASE || parsers > 1) {
+      try (JarFile jarFile = openJar(jar, release)) {
+        boolean selectRelease = release != BASE_RELEASE && jarFile.isMultiRelease();
+        boolean split = parsers > 1 && jarFile.size() >= JarRanges.MIN_ENTRIES;
+        if (selectRelease || split) {
+          List<JarEntry> entries = classEntries(jarFile);
+          if (split && entries.size() >= JarRanges.MIN_ENTRIES) {
+            new JarRanges(jarFile, entries, visitorFactory, handler).accept(executor, parsers);
+          } else {
+            acceptEntries(jarFile, entries, visitorFactory);
+          }
+          return;
+        }
+      } catch (IOException ioException) {
+        handler.accept(jar.toString(), ioException);
+        return;
+      }
+    }
+    // other jars are streamed, without random access
     try {
       acceptJar(Files.newInputStream(jar), visitorFactory);
     } catch (IOException ioException) {
@@ -73,55 +286,155 @@ public final class ClassFileVisitorUtils {
     }
   }
 
+  /** The selected class entries of a jar, read from the central directory. */
+  private List<JarEntry> classEntries(JarFile jarFile) {
+    List<JarEntry> entries = new ArrayList<>();
+    Iterator<JarEntry> versioned = jarFile.versionedStream().iterator();
+    while (versioned.hasNext()) {
+      JarEntry entry = versioned.next();
+      if (isClassPath(entry.getName())) {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+  private void acceptEntries(
+      JarFile jarFile, List<JarEntry> entries, Function<String, ClassFileVisitor> visitorFactory)
+      throws IOException {
+    ClassFileBuffer buffer = new ClassFileBuffer();
+    for (JarEntry entry : entries) {
+      String className = pathToClassName(entry.getName());
+      try (InputStream in = jarFile.getInputStream(entry)) {
+        visitorFactory.apply(className).visitClass(className, buffer.read(in, entry.getSize()));
+      }
+    }
+  }
+
   private  void acceptJar(InputStream is, Function<String, ClassFileVisitor> visitorFactory)
       throws IOException {
+    ClassFileBuffer buffer = new ClassFileBuffer();
     try (JarInputStream in = new JarInputStream(is)) {
       JarEntry entry;
       while ((entry = in.getNextJarEntry()) != null) {
         String path = entry.getName();
-        // ignore files like package-info.class and module-info.class
-        if (path.endsWith(DOT_CLASS) && path.indexOf('-') == -1) {
+        if (isClassPath(path)) {
           String className = pathToClassName(path);
-          visitorFactory.apply(className).visitClass(className, in);
+          visitorFactory.apply(className).visitClass(className, buffer.read(in, entry.getSize()));
         }
       }
     }
   }
 
-  private  void acceptDirectory(
+  private void acceptDirectory(
       Path directory,
       Function<String, ClassFileVisitor> visitorFactory,
-      BiConsumer<String, IOException> handler) {
-    DirectoryScanner scanner = new DirectoryScanner();
+      BiConsumer<String, IOException> handler,
+      Executor executor,
+      int parsers) {
+    if (parsers <= 1) {
+      ClassFileBuffer buffer = new ClassFileBuffer();
+      try {
+        walkDirectory(
+            directory,
+            path -> acceptClassInDirectory(directory, path, visitorFactory, buffer, handler));
+      } catch (IOException ioException) {
+        handler.accept(directory.toString(), ioException);
+      }
+      return;
+    }
+    // parsing starts with the first class file found, rather than after the whole walk
+    ClassFilePipeline pipeline = new ClassFilePipeline(directory, visitorFactory, handler, parsers);
+    pipeline.start(executor);
+    try {
+      walkDirectory(directory, pipeline::accept);
+    } catch (IOException ioException) {
+      handler.accept(directory.toString(), ioException);
+    } finally {
+      pipeline.finish();
+    }
+  }
 
-    scanner.setBasedir(directory.toFile());
-    scanner.setIncludes(new String[] {"**/*.class"});
+  /** Pass the path of each class file to the consumer as soon as it is found. */
+  private void walkDirectory(Path directory, Consumer<String> pathConsumer) throws IOException {
+    walkDirectory(directory, (path, attributes) -> pathConsumer.accept(path));
+  }
 
-    scanner.scan();
+  /**
+   * Walk the class files of a directory, following links. Unreadable files and link cycles are
+   * skipped.
+   *
+   * @param directory The directory to walk
+   * @param pathConsumer The consumer of the path of each class file, relative to the directory and
+   *     separated by <code>/</code>, and its attributes
+   * @throws IOException if the directory cannot be walked
+   */
+  public void walkDirectory(Path directory, BiConsumer<String, BasicFileAttributes> pathConsumer)
+      throws IOException {
+    Files.walkFileTree(
+        directory,
+        EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+        Integer.MAX_VALUE,
+        new SimpleFileVisitor<>() {
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+            String path = directory.relativize(file).toString();
+            if (attributes.isRegularFile() && path.endsWith(DOT_CLASS)) {
+              pathConsumer.accept(path.replace(File.separatorChar, '/'), attributes);
+            }
+            return FileVisitResult.CONTINUE;
+          }
 
-    String[] paths = scanner.getIncludedFiles();
-    for (String path : paths) {
-      String className = pathToClassName(path.replace(File.separatorChar, '/'));
-      acceptClassInDirectory(directory, path, className, visitorFactory.apply(className), handler);
-    }
+          @Override
+          public FileVisitResult visitFileFailed(Path file, IOException ioException) {
+            // unreadable files and link cycles are skipped
+            return FileVisitResult.CONTINUE;
+          }
+        });
   }
 
-  private  void acceptClassInDirectory(
+  /**
+   * Visit one class file of a directory.
+   *
+   * @param directory The directory holding the class file
+   * @param path The path of the class file, relative to the directory and separated by <code>/
+   *     </code>
+   * @param visitorFactory The factory for visitors
+   * @param buffer The buffer the class file is read into
+   * @param handler the method which is invoked upon any IOException
+   */
+  void acceptClassInDirectory(
       Path directory,
       String path,
-      String className,
-      ClassFileVisitor visitor,
+      Function<String, ClassFileVisitor> visitorFactory,
+      ClassFileBuffer buffer,
       BiConsumer<String, IOException> handler) {
-    Path classLocation = directory.resolve(path);
-
-    try (InputStream in = Files.newInputStream(classLocation)) {
-      visitor.visitClass(className, in);
+    String className = pathToClassName(path);
+    try {
+      visitorFactory.apply(className).visitClass(className, buffer.read(directory.resolve(path)));
     } catch (IOException ioException) {
       handler.accept(path, ioException);
     }
   }
 
-  private  String pathToClassName(String path) {
+  /**
+   * Whether a path names a class file to analyze.
+   *
+   * @param path The path, separated by <code>/</code>
+   * @return true, if the path is a class file other than a package or module descriptor
+   */
+  public boolean isClassPath(String path) {
+    // ignore files like package-info.class and module-info.class
+    return path.endsWith(DOT_CLASS) && path.indexOf('-') == -1;
+  }
+
+  /**
+   * The name of the class held by a class file.
+   *
+   * @param path The path of the class file, separated by <code>/</code>
+   * @return The class name, separated by <code>.</code>
+   */
+  public String pathToClassName(String path) {
     return path.substring(0, path.length() - DOT_CLASS.length()).replace('/', '.');
   }
 }
@@ -20,6 +20,9 @@ package org.honton.chas.analyzer.api;
  */
 
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import org.apache.maven.plugin.logging.Log;
@@ -39,4 +42,38 @@ public interface DependencyAnalyzer {
    * @return A map of classes available in the File to the set of classes required by that class
    */
   Map<String, Set<String>> analyze(Path location, Log log);
+
+  /**
+   * Open a location for analysis of individual classes. The returned ClassAnalyzer must be closed
+   * once analysis is complete.
+   *
+   * @param location the Jar or directory to analyze
+   * @param log The logger for any processing messages
+   * @return The analyzer of classes available in the location
+   */
+  default ClassAnalyzer open(Path location, Log log) {
+    return analyze(location, log)::get;
+  }
+
+  /**
+   * Analyze some of the class files in a directory. Classes are named by their outermost class,
+   * so the class files of inner classes should be analyzed together with their outer class.
+   *
+   * @param directory the directory holding the class files
+   * @param classPaths The paths of the class files to analyze, relative to the directory and
+   *     separated by <code>/</code>
+   * @param log The logger for any processing messages
+   * @return A map of the classes analyzed to the set of classes required by that class
+   */
+  default Map<String, Set<String>> analyze(Path directory, Collection<String> classPaths, Log log) {
+    Set<String> classNames = new HashSet<>();
+    for (String classPath : classPaths) {
+      String className = ClassFileVisitorUtils.pathToClassName(classPath);
+      int dollarIdx = className.indexOf('$');
+      classNames.add(dollarIdx < 0 ? className : className.substring(0, dollarIdx));
+    }
+    Map<String, Set<String>> dependencies = new HashMap<>(analyze(directory, log));
+    dependencies.keySet().retainAll(classNames);
+    return dependencies;
+  }
 }
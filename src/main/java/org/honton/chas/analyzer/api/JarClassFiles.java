@@ -0,0 +1,119 @@
+package org.honton.chas.analyzer.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import org.honton.chas.analyzer.spi.ClassFileVisitor;
+
+/**
+ * Random access to the classes of a jar. The central directory is read once; each class is
+ * inflated only when visited, into a buffer reused by the thread. Of a multi-release jar, only the
+ * entry selected for the release is visited.
+ */
+public class JarClassFiles implements Closeable {
+  private final JarFile jarFile;
+  // container className to entries of the class and its inner classes
+  private final Map<String, List<JarEntry>> entries = new HashMap<>();
+  private final ThreadLocal<ClassFileBuffer> buffers =
+      ThreadLocal.withInitial(ClassFileBuffer::new);
+
+  /**
+   * Open a jar and read its central directory. Only the base entries of a multi-release jar are
+   * visited.
+   *
+   * @param jar The jar
+   * @throws IOException if the jar cannot be read
+   */
+  public JarClassFiles(Path jar) throws IOException {
+    this(jar, ClassFileVisitorUtils.BASE_RELEASE);
+  }
+
+  /**
+   * Open a jar and read its central directory.
+   *
+   * @param jar The jar
+   * @param release The Java release whose entries of a multi-release jar are visited
+   * @throws IOException if the jar cannot be read
+   */
+  public JarClassFiles(Path jar, int release) throws IOException {
+    jarFile = ClassFileVisitorUtils.openJar(jar, release);
+    try {
+      // versioned entries are named as the base entry they replace
+      Iterator<JarEntry> jarEntries = jarFile.versionedStream().iterator();
+      while (jarEntries.hasNext()) {
+        JarEntry entry = jarEntries.next();
+        String path = entry.getName();
+        if (ClassFileVisitorUtils.isClassPath(path)) {
+          String className = ClassFileVisitorUtils.pathToClassName(path);
+          entries.computeIfAbsent(containerName(className), cn -> new ArrayList<>()).add(entry);
+        }
+      }
+    } catch (RuntimeException runtimeException) {
+      jarFile.close();
+      throw runtimeException;
+    }
+  }
+
+  private static String containerName(String className) {
+    int dollarIdx = className.indexOf('$');
+    return dollarIdx < 0 ? className : className.substring(0, dollarIdx);
+  }
+
+  /**
+   * Visit a class and its inner classes.
+   *
+   * @param className The name of the container class
+   * @param visitorFactory The factory for visitors
+   * @return false, if the class is not present in the jar
+   * @throws IOException if a class cannot be read
+   */
+  public boolean accept(String className, Function<String, ClassFileVisitor> visitorFactory)
+      throws IOException {
+    List<JarEntry> classEntries = entries.get(className);
+    if (classEntries == null) {
+      return false;
+    }
+    for (JarEntry entry : classEntries) {
+      accept(entry, visitorFactory.apply(ClassFileVisitorUtils.pathToClassName(entry.getName())));
+    }
+    return true;
+  }
+
+  /**
+   * The entries of a class and its inner classes.
+   *
+   * @param className The name of the container class
+   * @return The entries, or null if the class is not present in the jar
+   */
+  public List<JarEntry> entries(String className) {
+    return entries.get(className);
+  }
+
+  /**
+   * Visit one class file.
+   *
+   * @param entry An entry of a class, or of its inner classes
+   * @param visitor The visitor of the class file
+   * @throws IOException if the class cannot be read
+   */
+  public void accept(JarEntry entry, ClassFileVisitor visitor) throws IOException {
+    String entryClassName = ClassFileVisitorUtils.pathToClassName(entry.getName());
+    try (InputStream in = jarFile.getInputStream(entry)) {
+      visitor.visitClass(entryClassName, buffers.get().read(in, entry.getSize()));
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    jarFile.close();
+  }
+}
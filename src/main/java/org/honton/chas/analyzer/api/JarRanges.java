@@ -0,0 +1,112 @@
+package org.honton.chas.analyzer.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import org.honton.chas.analyzer.spi.ClassFileVisitor;
+
+/**
+ * Parse the class files of a large jar on several threads. The class entries listed from the
+ * central directory are split into ranges, and each task claims the next range, reading and
+ * inflating its entries through random access. The calling thread claims ranges too, so the jar is
+ * parsed even when no thread of the executor is free.
+ */
+class JarRanges {
+  /** The fewest class entries worth splitting into ranges. */
+  static final int MIN_ENTRIES = 1024;
+
+  private static final int RANGE_SIZE = 256;
+
+  private final JarFile jarFile;
+  private final List<JarEntry> entries;
+  private final Function<String, ClassFileVisitor> visitorFactory;
+  private final BiConsumer<String, IOException> handler;
+  private final int ranges;
+  private final AtomicInteger nextRange = new AtomicInteger();
+  // ranges claimed or not, which are not yet parsed
+  private final AtomicInteger pending;
+  private volatile RuntimeException failure;
+
+  /**
+   * Create the ranges of a jar.
+   *
+   * @param jarFile The jar, which remains open until {@link #accept} returns
+   * @param entries The class entries to parse
+   * @param visitorFactory The factory for visitors, which must be safe to use from many threads
+   * @param handler the method which is invoked upon any IOException; the String parameter is the
+   *     entry name
+   */
+  JarRanges(
+      JarFile jarFile,
+      List<JarEntry> entries,
+      Function<String, ClassFileVisitor> visitorFactory,
+      BiConsumer<String, IOException> handler) {
+    this.jarFile = jarFile;
+    this.entries = entries;
+    this.visitorFactory = visitorFactory;
+    this.handler = handler;
+    ranges = (entries.size() + RANGE_SIZE - 1) / RANGE_SIZE;
+    pending = new AtomicInteger(ranges);
+  }
+
+  /**
+   * Parse every range, and wait for all to finish.
+   *
+   * @param executor The executor running the parsing tasks
+   * @param parsers The number of tasks parsing ranges, including the calling thread
+   */
+  void accept(Executor executor, int parsers) {
+    for (int i = 1; i < Math.min(parsers, ranges); ++i) {
+      executor.execute(this::parseRanges);
+    }
+    parseRanges();
+    synchronized (this) {
+      while (pending.get() > 0) {
+        try {
+          wait();
+        } catch (InterruptedException interruptedException) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void parseRanges() {
+    ClassFileBuffer buffer = new ClassFileBuffer();
+    for (int range; (range = nextRange.getAndIncrement()) < ranges; ) {
+      try {
+        int end = Math.min(entries.size(), (range + 1) * RANGE_SIZE);
+        for (int i = range * RANGE_SIZE; i < end; ++i) {
+          parseEntry(entries.get(i), buffer);
+        }
+      } catch (RuntimeException runtimeException) {
+        failure = runtimeException;
+      } finally {
+        if (pending.decrementAndGet() == 0) {
+          synchronized (this) {
+            notifyAll();
+          }
+        }
+      }
+    }
+  }
+
+  private void parseEntry(JarEntry entry, ClassFileBuffer buffer) {
+    String className = ClassFileVisitorUtils.pathToClassName(entry.getName());
+    try (InputStream in = jarFile.getInputStream(entry)) {
+      visitorFactory.apply(className).visitClass(className, buffer.read(in, entry.getSize()));
+    } catch (IOException ioException) {
+      handler.accept(entry.getName(), ioException);
+    }
+  }
+}
@@ -19,25 +19,157 @@ package org.honton.chas.analyzer.asm;
  * under the License.
  */
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import org.apache.maven.plugin.logging.Log;
+import org.honton.chas.analyzer.api.AnalysisMode;
+import org.honton.chas.analyzer.api.ClassAnalyzer;
+import org.honton.chas.analyzer.api.ClassContentIndex;
+import org.honton.chas.analyzer.api.JarClassFiles;
 import org.honton.chas.analyzer.spi.ClassFileVisitorFactory;
 import org.honton.chas.analyzer.api.ClassFileVisitorUtils;
 import org.honton.chas.analyzer.api.DependencyAnalyzer;
 
 public class AsmDependencyAnalyzer implements DependencyAnalyzer {
+  private final AnalysisMode analysisMode;
+  private final AnalysisMode dependencyMode;
+  private final int release;
+  private final Executor executor;
+  private final int parsers;
+  private final ClassContentIndex contentIndex;
+
+  public AsmDependencyAnalyzer() {
+    this(AnalysisMode.FULL);
+  }
+
+  public AsmDependencyAnalyzer(AnalysisMode analysisMode) {
+    this(analysisMode, ClassFileVisitorUtils.BASE_RELEASE);
+  }
+
+  /**
+   * Create a DependencyAnalyzer.
+   *
+   * @param analysisMode How deeply class files are analyzed
+   * @param release The Java release whose entries of multi-release jars are analyzed
+   */
+  public AsmDependencyAnalyzer(AnalysisMode analysisMode, int release) {
+    this(analysisMode, release, ForkJoinPool.commonPool(), 1);
+  }
+
+  /**
+   * Create a DependencyAnalyzer which parses the class files of a directory or large jar on several
+   * threads.
+   *
+   * @param analysisMode How deeply class files are analyzed
+   * @param release The Java release whose entries of multi-release jars are analyzed
+   * @param executor The executor running the parsing tasks
+   * @param parsers The number of tasks parsing the class files of a directory or jar
+   */
+  public AsmDependencyAnalyzer(
+      AnalysisMode analysisMode, int release, Executor executor, int parsers) {
+    this(analysisMode, release, executor, parsers, ClassContentIndex.NONE);
+  }
+
+  /**
+   * Create a DependencyAnalyzer which reuses the analysis of class files of the same content.
+   *
+   * @param analysisMode How deeply class files are analyzed
+   * @param release The Java release whose entries of multi-release jars are analyzed
+   * @param executor The executor running the parsing tasks
+   * @param parsers The number of tasks parsing the class files of a directory or jar
+   * @param contentIndex The analyses of the class files of jars, keyed by their content
+   */
+  public AsmDependencyAnalyzer(
+      AnalysisMode analysisMode,
+      int release,
+      Executor executor,
+      int parsers,
+      ClassContentIndex contentIndex) {
+    this(analysisMode, analysisMode, release, executor, parsers, contentIndex);
+  }
+
+  /**
+   * Create a DependencyAnalyzer which analyzes the classes opened individually, which are the
+   * classes of dependencies, in another mode than whole directories and jars.
+   *
+   * @param analysisMode How deeply the class files of whole directories and jars are analyzed
+   * @param dependencyMode How deeply the class files of individually opened classes are analyzed
+   * @param release The Java release whose entries of multi-release jars are analyzed
+   * @param executor The executor running the parsing tasks
+   * @param parsers The number of tasks parsing the class files of a directory or jar
+   * @param contentIndex The analyses of the class files of jars, keyed by their content
+   */
+  public AsmDependencyAnalyzer(
+      AnalysisMode analysisMode,
+      AnalysisMode dependencyMode,
+      int release,
+      Executor executor,
+      int parsers,
+      ClassContentIndex contentIndex) {
+    this.analysisMode = analysisMode;
+    this.dependencyMode = dependencyMode;
+    this.release = release;
+    this.executor = executor;
+    this.parsers = parsers;
+    this.contentIndex = contentIndex;
+  }
+
+  private ClassFileVisitorFactory visitorFactory(AnalysisMode mode) {
+    return new ClassFileVisitorFactory(mode, parsers > 1);
+  }
 
   @Override
   public Map<String, Set<String>> analyze(Path file, Log log) {
-    ClassFileVisitorFactory classFileVisitorFactory = new ClassFileVisitorFactory();
+    return analyze(file, analysisMode, log);
+  }
+
+  private Map<String, Set<String>> analyze(Path file, AnalysisMode mode, Log log) {
+    ClassFileVisitorFactory classFileVisitorFactory = visitorFactory(mode);
 
     ClassFileVisitorUtils.accept(
         file,
+        release,
         classFileVisitorFactory,
-        (cn, io) -> log.warn("Could not analyze " + cn + " within " + file));
+        (cn, io) -> log.warn("Could not analyze " + cn + " within " + file),
+        executor,
+        parsers);
 
     return classFileVisitorFactory.getDependencies();
   }
+
+  @Override
+  public Map<String, Set<String>> analyze(Path directory, Collection<String> classPaths, Log log) {
+    ClassFileVisitorFactory classFileVisitorFactory = visitorFactory(analysisMode);
+
+    ClassFileVisitorUtils.accept(
+        directory,
+        classPaths,
+        classFileVisitorFactory,
+        (cn, io) -> log.warn("Could not analyze " + cn + " within " + directory),
+        executor,
+        parsers);
+
+    return classFileVisitorFactory.getDependencies();
+  }
+
+  @Override
+  public ClassAnalyzer open(Path location, Log log) {
+    if (!Files.isRegularFile(location)) {
+      // the build output of another module, analyzed as a dependency
+      return analyze(location, dependencyMode, log)::get;
+    }
+    try {
+      return new JarClassAnalyzer(
+          location, new JarClassFiles(location, release), dependencyMode, contentIndex, log);
+    } catch (IOException ioException) {
+      log.warn("Could not analyze " + location);
+      return cn -> null;
+    }
+  }
 }
@@ -27,13 +27,28 @@ import org.honton.chas.analyzer.asm.visitors.CollectorClassFileVisitor;
 import org.honton.chas.analyzer.api.LocationCollector;
 
 public class AsmLocationCollector implements LocationCollector {
+  private final int release;
+
+  public AsmLocationCollector() {
+    this(ClassFileVisitorUtils.BASE_RELEASE);
+  }
+
+  /**
+   * Create a LocationCollector.
+   *
+   * @param release The Java release whose entries of multi-release jars are listed
+   */
+  public AsmLocationCollector(int release) {
+    this.release = release;
+  }
 
   @Override
   public Set<String> list(Path location, Log log) {
     CollectorClassFileVisitor visitor = new CollectorClassFileVisitor();
-    ClassFileVisitorUtils.accept(
+    ClassFileVisitorUtils.list(
         location,
-        cn -> visitor,
+        release,
+        visitor::visitClassName,
         (cn1, io) -> log.warn("Could not list " + cn1 + " at location " + location));
     return visitor.getClasses();
   }
@@ -0,0 +1,90 @@
+package org.honton.chas.analyzer.asm;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import org.apache.maven.plugin.logging.Log;
+import org.honton.chas.analyzer.api.AnalysisMode;
+import org.honton.chas.analyzer.api.ClassAnalyzer;
+import org.honton.chas.analyzer.api.ClassContentIndex;
+import org.honton.chas.analyzer.api.JarClassFiles;
+import org.honton.chas.analyzer.asm.visitors.DependencyClassFileVisitor;
+
+/**
+ * Analyze the classes of a jar on demand, inflating only the entries of requested classes. Entries
+ * whose content was analyzed before, within any jar, are found in the content index instead.
+ */
+class JarClassAnalyzer implements ClassAnalyzer {
+  private final Path jar;
+  private final JarClassFiles classFiles;
+  private final AnalysisMode analysisMode;
+  private final ClassContentIndex contentIndex;
+  private final Log log;
+
+  JarClassAnalyzer(
+      Path jar,
+      JarClassFiles classFiles,
+      AnalysisMode analysisMode,
+      ClassContentIndex contentIndex,
+      Log log) {
+    this.jar = jar;
+    this.classFiles = classFiles;
+    this.analysisMode = analysisMode;
+    this.contentIndex = contentIndex;
+    this.log = log;
+  }
+
+  @Override
+  public Set<String> analyze(String className) {
+    Set<String> dependencies = new HashSet<>();
+    try {
+      if (contentIndex == ClassContentIndex.NONE) {
+        DependencyClassFileVisitor visitor =
+            new DependencyClassFileVisitor(dependencies, analysisMode);
+        return classFiles.accept(className, cn -> visitor) ? dependencies : null;
+      }
+      List<JarEntry> entries = classFiles.entries(className);
+      if (entries == null) {
+        return null;
+      }
+      for (JarEntry entry : entries) {
+        dependencies.addAll(analyze(entry));
+      }
+      return dependencies;
+    } catch (IOException ioException) {
+      log.warn("Could not analyze " + className + " within " + jar);
+      return null;
+    }
+  }
+
+  /** Analyze one class file, unless a class file of the same content was analyzed before. */
+  private Set<String> analyze(JarEntry entry) throws IOException {
+    // the central directory may lack the CRC of an entry
+    boolean known = entry.getCrc() != -1 && entry.getSize() != -1;
+    if (known) {
+      Set<String> dependencies =
+          contentIndex.get(entry.getName(), entry.getCrc(), entry.getSize());
+      if (dependencies != null) {
+        return dependencies;
+      }
+    }
+    Set<String> dependencies = new HashSet<>();
+    classFiles.accept(entry, new DependencyClassFileVisitor(dependencies, analysisMode));
+    if (known) {
+      contentIndex.put(entry.getName(), entry.getCrc(), entry.getSize(), dependencies);
+    }
+    return dependencies;
+  }
+
+  @Override
+  public void close() {
+    try {
+      classFiles.close();
+    } catch (IOException ioException) {
+      log.debug("Could not close " + jar);
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package org.honton.chas.analyzer.asm.visitors;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.signature.SignatureVisitor;
+
+/**
+ * Computes the set of classes referenced by the API of visited code: the class header, and the
+ * declarations of public and protected members. Members which code outside the package cannot
+ * access are not visited.
+ */
+public class ApiClassVisitor extends DefaultClassVisitor {
+  private static final int VISIBLE = Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED;
+
+  /**
+   * Constructor for ApiClassVisitor.
+   *
+   * @param signatureVisitor a {@link org.objectweb.asm.signature.SignatureVisitor} object.
+   * @param annotationVisitor a {@link org.objectweb.asm.AnnotationVisitor} object.
+   * @param fieldVisitor a {@link org.objectweb.asm.FieldVisitor} object.
+   * @param methodVisitor a {@link org.objectweb.asm.MethodVisitor} object.
+   * @param resultCollector a {@link ResultCollector} object.
+   */
+  public ApiClassVisitor(
+      SignatureVisitor signatureVisitor,
+      AnnotationVisitor annotationVisitor,
+      FieldVisitor fieldVisitor,
+      MethodVisitor methodVisitor,
+      ResultCollector resultCollector) {
+    super(signatureVisitor, annotationVisitor, fieldVisitor, methodVisitor, resultCollector);
+  }
+
+  private static boolean isApi(int access) {
+    return (access & VISIBLE) != 0 && (access & Opcodes.ACC_SYNTHETIC) == 0;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public FieldVisitor visitField(
+      final int access,
+      final String name,
+      final String desc,
+      final String signature,
+      final Object value) {
+    return isApi(access) ? super.visitField(access, name, desc, signature, value) : null;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public MethodVisitor visitMethod(
+      final int access,
+      final String name,
+      final String desc,
+      final String signature,
+      final String[] exceptions) {
+    return isApi(access) ? super.visitMethod(access, name, desc, signature, exceptions) : null;
+  }
+}
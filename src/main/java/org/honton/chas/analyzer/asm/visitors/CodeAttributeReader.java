@@ -0,0 +1,215 @@
+package org.honton.chas.analyzer.asm.visitors;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+/**
+ * Reads the declarations within the Code attributes of a class that reference types: local
+ * variables, and type annotations of local variables. This supplements a ClassReader accepting
+ * with {@link ClassReader#SKIP_CODE}, which skips these along with the instructions. Instructions
+ * only reference classes through CONSTANT_Class entries of the constant pool, so they need not be
+ * read.
+ *
+ * @see <a href="https://docs.oracle.com/javase/specs/jvms/se17/html/jvms-4.html#jvms-4.7.3">Code
+ *     Attribute</a>
+ */
+class CodeAttributeReader {
+  private static final String CODE = "Code";
+  private static final String LOCAL_VARIABLE_TABLE = "LocalVariableTable";
+  private static final String LOCAL_VARIABLE_TYPE_TABLE = "LocalVariableTypeTable";
+  private static final String VISIBLE_TYPE_ANNOTATIONS = "RuntimeVisibleTypeAnnotations";
+  private static final String INVISIBLE_TYPE_ANNOTATIONS = "RuntimeInvisibleTypeAnnotations";
+
+  // type annotation target types
+  private static final int LOCAL_VARIABLE = 0x40;
+  private static final int RESOURCE_VARIABLE = 0x41;
+  private static final int EXCEPTION_PARAMETER = 0x42;
+  private static final int INSTANCEOF = 0x43;
+  private static final int METHOD_REFERENCE = 0x46;
+
+  private final ClassReader reader;
+  private final char[] charBuffer;
+
+  CodeAttributeReader(ClassReader reader) {
+    this.reader = reader;
+    charBuffer = new char[reader.getMaxStringLength()];
+  }
+
+  /**
+   * Visit the local variables and local variable annotations of every method.
+   *
+   * @param methodVisitor The visitor of the local variables and annotations
+   */
+  void accept(MethodVisitor methodVisitor) {
+    // skip access_flags, this_class, super_class
+    int offset = reader.header + 6;
+    offset += 2 + 2 * reader.readUnsignedShort(offset);
+
+    // skip fields
+    offset = acceptMembers(offset, null);
+    acceptMembers(offset, methodVisitor);
+  }
+
+  /** Visit the Code attributes of a fields or methods table, returning the end offset. */
+  private int acceptMembers(int offset, MethodVisitor methodVisitor) {
+    int memberCount = reader.readUnsignedShort(offset);
+    offset += 2;
+    for (; memberCount > 0; --memberCount) {
+      // skip access_flags, name_index, descriptor_index
+      offset = acceptAttributes(offset + 6, methodVisitor);
+    }
+    return offset;
+  }
+
+  /** Visit the Code attribute among the attributes of a member, returning the end offset. */
+  private int acceptAttributes(int offset, MethodVisitor methodVisitor) {
+    int attributeCount = reader.readUnsignedShort(offset);
+    offset += 2;
+    for (; attributeCount > 0; --attributeCount) {
+      int length = reader.readInt(offset + 2);
+      if (methodVisitor != null && CODE.equals(reader.readUTF8(offset, charBuffer))) {
+        acceptCode(offset + 6, methodVisitor);
+      }
+      offset += 6 + length;
+    }
+    return offset;
+  }
+
+  private void acceptCode(int offset, MethodVisitor methodVisitor) {
+    // skip max_stack, max_locals, code, exception_table
+    offset += 8 + reader.readInt(offset + 4);
+    offset += 2 + 8 * reader.readUnsignedShort(offset);
+
+    int localVariableTable = 0;
+    int localVariableTypeTable = 0;
+    int attributeCount = reader.readUnsignedShort(offset);
+    offset += 2;
+    for (; attributeCount > 0; --attributeCount) {
+      String name = reader.readUTF8(offset, charBuffer);
+      if (LOCAL_VARIABLE_TABLE.equals(name)) {
+        localVariableTable = offset + 6;
+      } else if (LOCAL_VARIABLE_TYPE_TABLE.equals(name)) {
+        localVariableTypeTable = offset + 6;
+      } else if (VISIBLE_TYPE_ANNOTATIONS.equals(name)) {
+        acceptTypeAnnotations(offset + 6, true, methodVisitor);
+      } else if (INVISIBLE_TYPE_ANNOTATIONS.equals(name)) {
+        acceptTypeAnnotations(offset + 6, false, methodVisitor);
+      }
+      offset += 6 + reader.readInt(offset + 2);
+    }
+
+    if (localVariableTable != 0) {
+      acceptLocalVariables(localVariableTable, localVariableTypeTable, methodVisitor);
+    }
+  }
+
+  /**
+   * Visit each local variable, with the signature from the type table entry having the same start
+   * and index, if any.
+   */
+  private void acceptLocalVariables(
+      int localVariableTable, int localVariableTypeTable, MethodVisitor methodVisitor) {
+    int typeCount =
+        localVariableTypeTable == 0 ? 0 : reader.readUnsignedShort(localVariableTypeTable);
+    for (int count = reader.readUnsignedShort(localVariableTable), offset = localVariableTable + 2;
+        count > 0;
+        --count, offset += 10) {
+      int startPc = reader.readUnsignedShort(offset);
+      int index = reader.readUnsignedShort(offset + 8);
+      String signature = null;
+      for (int type = 0, typeOffset = localVariableTypeTable + 2; type < typeCount; ++type) {
+        if (reader.readUnsignedShort(typeOffset) == startPc
+            && reader.readUnsignedShort(typeOffset + 8) == index) {
+          signature = reader.readUTF8(typeOffset + 6, charBuffer);
+          break;
+        }
+        typeOffset += 10;
+      }
+      methodVisitor.visitLocalVariable(
+          reader.readUTF8(offset + 4, charBuffer),
+          reader.readUTF8(offset + 6, charBuffer),
+          signature,
+          null,
+          null,
+          index);
+    }
+  }
+
+  private void acceptTypeAnnotations(int offset, boolean visible, MethodVisitor methodVisitor) {
+    int annotationCount = reader.readUnsignedShort(offset);
+    offset += 2;
+    for (; annotationCount > 0; --annotationCount) {
+      int targetType = reader.readByte(offset);
+      boolean localVariable = targetType == LOCAL_VARIABLE || targetType == RESOURCE_VARIABLE;
+      if (localVariable) {
+        offset += 3 + 6 * reader.readUnsignedShort(offset + 1);
+      } else if (targetType == EXCEPTION_PARAMETER
+          || targetType >= INSTANCEOF && targetType <= METHOD_REFERENCE) {
+        offset += 3;
+      } else {
+        // type argument of cast, constructor or method invocation, or reference
+        offset += 4;
+      }
+      // skip type_path
+      offset += 1 + 2 * reader.readByte(offset);
+
+      String descriptor = reader.readUTF8(offset, charBuffer);
+      AnnotationVisitor annotationVisitor =
+          localVariable
+              ? methodVisitor.visitLocalVariableAnnotation(
+                  targetType << 24, null, null, null, null, descriptor, visible)
+              : null;
+      offset = acceptElementValuePairs(offset + 2, annotationVisitor);
+    }
+  }
+
+  private int acceptElementValuePairs(int offset, AnnotationVisitor annotationVisitor) {
+    int pairCount = reader.readUnsignedShort(offset);
+    offset += 2;
+    for (; pairCount > 0; --pairCount) {
+      offset =
+          acceptElementValue(
+              offset + 2, reader.readUTF8(offset, charBuffer), annotationVisitor);
+    }
+    return offset;
+  }
+
+  private int acceptElementValue(int offset, String name, AnnotationVisitor annotationVisitor) {
+    switch (reader.readByte(offset)) {
+      case 'e':
+        if (annotationVisitor != null) {
+          annotationVisitor.visitEnum(
+              name,
+              reader.readUTF8(offset + 1, charBuffer),
+              reader.readUTF8(offset + 3, charBuffer));
+        }
+        return offset + 5;
+      case 'c':
+        if (annotationVisitor != null) {
+          annotationVisitor.visit(name, Type.getType(reader.readUTF8(offset + 1, charBuffer)));
+        }
+        return offset + 3;
+      case '@':
+        return acceptElementValuePairs(
+            offset + 3,
+            annotationVisitor == null
+                ? null
+                : annotationVisitor.visitAnnotation(
+                    name, reader.readUTF8(offset + 1, charBuffer)));
+      case '[':
+        AnnotationVisitor arrayVisitor =
+            annotationVisitor == null ? null : annotationVisitor.visitArray(name);
+        int valueCount = reader.readUnsignedShort(offset + 1);
+        offset += 3;
+        for (; valueCount > 0; --valueCount) {
+          offset = acceptElementValue(offset, null, arrayVisitor);
+        }
+        return offset;
+      default:
+        // constant value
+        return offset + 3;
+    }
+  }
+}
@@ -20,6 +20,7 @@ package org.honton.chas.analyzer.asm.visitors;
  */
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.HashSet;
 import java.util.Set;
 import lombok.Getter;
@@ -33,6 +34,20 @@ public class CollectorClassFileVisitor implements ClassFileVisitor {
   private final Set<String> classes= new HashSet<>();
 
   public void visitClass(String className, InputStream in) {
+    visitClassName(className);
+  }
+
+  @Override
+  public void visitClass(String className, ByteBuffer buffer) {
+    visitClassName(className);
+  }
+
+  /**
+   * Collect a class without access to its contents.
+   *
+   * @param className The name of the class
+   */
+  public void visitClassName(String className) {
     // inner classes have equivalent compilation requirement as container class
     if (className.indexOf('$') < 0) {
       classes.add(className);
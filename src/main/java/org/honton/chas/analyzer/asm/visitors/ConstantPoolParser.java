@@ -19,14 +19,17 @@ package org.honton.chas.analyzer.asm.visitors;
  * under the License.
  */
 
-import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.signature.SignatureReader;
+import org.objectweb.asm.signature.SignatureVisitor;
 
 /**
  * A small parser to read the constant pool directly, in case it contains references ASM does not
@@ -86,6 +89,9 @@ public class ConstantPoolParser {
   /** Constant <code>CONSTANT_METHOD_TYPE=16</code> */
   public static final byte CONSTANT_METHOD_TYPE = 16;
 
+  /** Constant <code>CONSTANT_DYNAMIC=17</code> */
+  public static final byte CONSTANT_DYNAMIC = 17;
+
   /** Constant <code>CONSTANT_INVOKE_DYNAMIC=18</code> */
   public static final byte CONSTANT_INVOKE_DYNAMIC = 18;
 
@@ -101,155 +107,215 @@ public class ConstantPoolParser {
 
   private static final int OX3F = 0x3F;
 
+  // per thread arrays, grown as needed, so parsing does not allocate
+  private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
   static Set<String> getConstantPoolClassReferences(byte[] b) {
     return parseConstantPoolClassReferences(ByteBuffer.wrap(b));
   }
 
   static Set<String> parseConstantPoolClassReferences(ByteBuffer buf) {
-    if (buf.order(ByteOrder.BIG_ENDIAN).getInt() != HEAD) {
+    return parseConstantPool(buf, false);
+  }
+
+  /**
+   * Find the classes referenced by CONSTANT_Class entries, and by descriptors and signatures held
+   * in CONSTANT_Utf8 entries. This finds the types of fields, methods, local variables and
+   * annotations without reading past the constant pool.
+   *
+   * @param buf The class file bytes; the position is not changed
+   * @return The internal names of the referenced classes
+   */
+  static Set<String> getConstantPoolTypeReferences(ByteBuffer buf) {
+    return parseConstantPool(buf, true);
+  }
+
+  /**
+   * Parse the constant pool with absolute reads, so the position of the buffer is not changed.
+   * The first pass records the offset of each CONSTANT_Utf8 and the name index of each
+   * CONSTANT_Class; only the names of classes are then decoded, and interned.
+   */
+  private static Set<String> parseConstantPool(ByteBuffer buf, boolean descriptors) {
+    int offset = buf.position();
+    if (buf.order(ByteOrder.BIG_ENDIAN).getInt(offset) != HEAD) {
       return Collections.emptySet();
     }
-    buf.getChar();
-    buf.getChar(); // minor + ver
-    Set<Integer> classes = new HashSet<>();
-    Map<Integer, String> stringConstants = new HashMap<>();
-    for (int ix = 1, num = buf.getChar(); ix < num; ix++) {
-      byte tag = buf.get();
+    // skip magic, minor + major version
+    offset += 8;
+    int num = buf.getChar(offset);
+    offset += 2;
+
+    Scratch scratch = SCRATCH.get();
+    int[] utf8Offsets = scratch.offsets(num);
+    // entries that are not CONSTANT_Utf8 must not keep the offsets of a previous parse
+    Arrays.fill(utf8Offsets, 0, num, 0);
+    int[] classNameIndices = scratch.indices(num);
+    int classCount = 0;
+    for (int ix = 1; ix < num; ix++) {
+      byte tag = buf.get(offset++);
       switch (tag) {
         default:
           throw new RuntimeException("Unknown constant pool type '" + tag + "'");
         case CONSTANT_UTF8:
-          stringConstants.put(ix, decodeString(buf));
+          utf8Offsets[ix] = offset;
+          offset += 2 + buf.getChar(offset);
           break;
         case CONSTANT_CLASS:
-          classes.add((int) buf.getChar());
+          classNameIndices[classCount++] = buf.getChar(offset);
+          offset += 2;
           break;
         case CONSTANT_METHOD_TYPE:
-          consumeMethodType(buf);
+        case CONSTANT_STRING:
+        case CONSTANT_MODULE:
+        case CONSTANT_PACKAGE:
+          offset += 2;
+          break;
+        case CONSTANT_METHODHANDLE:
+          offset += 3;
           break;
         case CONSTANT_FIELDREF:
         case CONSTANT_METHODREF:
         case CONSTANT_INTERFACEMETHODREF:
         case CONSTANT_NAME_AND_TYPE:
-          consumeReference(buf);
-          break;
         case CONSTANT_INTEGER:
-          consumeInt(buf);
-          break;
         case CONSTANT_FLOAT:
-          consumeFloat(buf);
+        case CONSTANT_DYNAMIC:
+        case CONSTANT_INVOKE_DYNAMIC:
+          offset += 4;
           break;
         case CONSTANT_DOUBLE:
-          consumeDouble(buf);
-          ix++;
-          break;
         case CONSTANT_LONG:
-          consumeLong(buf);
+          offset += 8;
           ix++;
           break;
-        case CONSTANT_STRING:
-          consumeString(buf);
-          break;
-        case CONSTANT_METHODHANDLE:
-          consumeMethodHandle(buf);
-          break;
-        case CONSTANT_INVOKE_DYNAMIC:
-          consumeInvokeDynamic(buf);
-          break;
-        case CONSTANT_MODULE:
-          consumeModule(buf);
-          break;
-        case CONSTANT_PACKAGE:
-          consumePackage(buf);
-          break;
       }
     }
-    Set<String> result = new HashSet<>();
-    for (Integer aClass : classes) {
-      String className = stringConstants.get(aClass);
 
+    Set<String> result = new HashSet<>();
+    for (int i = 0; i < classCount; ++i) {
+      int utf8Offset = utf8Offsets[classNameIndices[i]];
       // filter out things from unnamed package, probably a false-positive
-      if (isImportableClass(className)) {
-        result.add(className);
+      if (isImportableClass(buf, utf8Offset)) {
+        // decoding may replace the scratch characters, so read them afterwards
+        int length = decode(buf, utf8Offset, scratch);
+        result.add(NameTable.NAMES.intern(scratch.chars, length));
+      }
+    }
+    if (descriptors) {
+      for (int ix = 1; ix < num; ix++) {
+        int utf8Offset = utf8Offsets[ix];
+        if (utf8Offset != 0 && isDescriptor(buf, utf8Offset)) {
+          int length = decode(buf, utf8Offset, scratch);
+          addDescriptorTypes(new String(scratch.chars, 0, length), result);
+        }
       }
     }
     return result;
   }
 
-  private static String decodeString(ByteBuffer buf) {
-    int size = buf.getChar();
-    // Explicit cast for compatibility with covariant return type on JDK 9's ByteBuffer
-    @SuppressWarnings("RedundantCast")
-    int oldLimit = ((Buffer) buf).limit();
-    ((Buffer) buf).limit(buf.position() + size);
-    StringBuilder sb = new StringBuilder(size + (size >> 1) + 16);
-    while (buf.hasRemaining()) {
-      byte b = buf.get();
+  /** Whether a CONSTANT_Utf8 contains a ';' and starts like a descriptor or signature. */
+  private static boolean isDescriptor(ByteBuffer buf, int utf8Offset) {
+    int length = buf.getChar(utf8Offset);
+    if (length == 0 || "(L[<".indexOf(buf.get(utf8Offset + 2)) < 0) {
+      return false;
+    }
+    return contains(buf, utf8Offset, ';');
+  }
+
+  /**
+   * Add the class types of a constant that looks like a field descriptor, method descriptor, or
+   * signature. Constants that do not parse as a signature are ignored.
+   */
+  private static void addDescriptorTypes(String constant, Set<String> result) {
+    List<String> classNames = new ArrayList<>();
+    try {
+      new SignatureReader(constant)
+          .accept(
+              new SignatureVisitor(Opcodes.ASM9) {
+                @Override
+                public void visitClassType(String name) {
+                  classNames.add(name);
+                }
+              });
+    } catch (RuntimeException notSignature) {
+      return;
+    }
+    for (String className : classNames) {
+      if (className.indexOf('/') != -1) {
+        result.add(NameTable.NAMES.intern(className));
+      }
+    }
+  }
+
+  /**
+   * Decode a modified UTF-8 constant into the scratch characters.
+   *
+   * @return The number of characters
+   */
+  private static int decode(ByteBuffer buf, int utf8Offset, Scratch scratch) {
+    int size = buf.getChar(utf8Offset);
+    char[] chars = scratch.chars(size);
+    int length = 0;
+    for (int offset = utf8Offset + 2, end = offset + size; offset < end; ) {
+      byte b = buf.get(offset++);
       if (b > 0) {
-        sb.append((char) b);
+        chars[length++] = (char) b;
       } else {
-        int b2 = buf.get();
+        int b2 = buf.get(offset++);
         if ((b & OXF0) != OXE0) {
-          sb.append((char) ((b & 0x1F) << 6 | b2 & OX3F));
+          chars[length++] = (char) ((b & 0x1F) << 6 | b2 & OX3F);
         } else {
-          int b3 = buf.get();
-          sb.append((char) ((b & 0x0F) << 12 | (b2 & OX3F) << 6 | b3 & OX3F));
+          int b3 = buf.get(offset++);
+          chars[length++] = (char) ((b & 0x0F) << 12 | (b2 & OX3F) << 6 | b3 & OX3F);
         }
       }
     }
-    ((Buffer) buf).limit(oldLimit);
-    return sb.toString();
+    return length;
   }
 
-  private static boolean isImportableClass(String className) {
+  private static boolean isImportableClass(ByteBuffer buf, int utf8Offset) {
     // without a slash, class must be in unnamed package, which can't be imported
-    return className.indexOf('/') != -1;
-  }
-
-  private static void consumeMethodType(ByteBuffer buf) {
-    buf.getChar();
-  }
-
-  private static void consumeReference(ByteBuffer buf) {
-    buf.getChar();
-    buf.getChar();
-  }
-
-  private static void consumeInt(ByteBuffer buf) {
-    buf.getInt();
-  }
-
-  private static void consumeFloat(ByteBuffer buf) {
-    buf.getFloat();
+    return contains(buf, utf8Offset, '/');
   }
 
-  private static void consumeDouble(ByteBuffer buf) {
-    buf.getDouble();
-  }
-
-  private static void consumeLong(ByteBuffer buf) {
-    buf.getLong();
-  }
-
-  private static void consumeString(ByteBuffer buf) {
-    buf.getChar();
+  /**
+   * Whether a CONSTANT_Utf8 contains an ASCII character. The bytes of multi-byte characters are
+   * all negative, so they never match.
+   */
+  private static boolean contains(ByteBuffer buf, int utf8Offset, char c) {
+    for (int offset = utf8Offset + 2, end = offset + buf.getChar(utf8Offset); offset < end; ) {
+      if (buf.get(offset++) == c) {
+        return true;
+      }
+    }
+    return false;
   }
 
-  private static void consumeMethodHandle(ByteBuffer buf) {
-    buf.get();
-    buf.getChar();
-  }
+  /** Arrays reused by the parses of one thread. */
+  private static final class Scratch {
+    private int[] offsets = new int[1024];
+    private int[] indices = new int[1024];
+    private char[] chars = new char[256];
 
-  private static void consumeInvokeDynamic(ByteBuffer buf) {
-    buf.getChar();
-    buf.getChar();
-  }
+    int[] offsets(int size) {
+      if (offsets.length < size) {
+        offsets = new int[size];
+      }
+      return offsets;
+    }
 
-  private static void consumeModule(ByteBuffer buf) {
-    buf.getChar();
-  }
+    int[] indices(int size) {
+      if (indices.length < size) {
+        indices = new int[size];
+      }
+      return indices;
+    }
 
-  private static void consumePackage(ByteBuffer buf) {
-    buf.getChar();
+    char[] chars(int size) {
+      if (chars.length < size) {
+        chars = new char[size];
+      }
+      return chars;
+    }
   }
 }
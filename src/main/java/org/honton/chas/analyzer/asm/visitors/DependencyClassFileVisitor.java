@@ -21,9 +21,11 @@ package org.honton.chas.analyzer.asm.visitors;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
 import java.util.Set;
+import org.honton.chas.analyzer.api.AnalysisMode;
 import org.honton.chas.analyzer.spi.ClassFileVisitor;
-import org.codehaus.plexus.util.IOUtil;
 import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
@@ -40,39 +42,67 @@ import org.objectweb.asm.signature.SignatureVisitor;
  */
 public class DependencyClassFileVisitor implements ClassFileVisitor {
   private final ResultCollector resultCollector;
+  private final AnalysisMode analysisMode;
 
   public DependencyClassFileVisitor() {
-    resultCollector = new ResultCollector();
+    this(new HashSet<>());
   }
 
   public DependencyClassFileVisitor(Set<String> classes) {
+    this(classes, AnalysisMode.FULL);
+  }
+
+  public DependencyClassFileVisitor(Set<String> classes, AnalysisMode analysisMode) {
     resultCollector = new ResultCollector(classes);
+    this.analysisMode = analysisMode;
   }
 
   /** {@inheritDoc} */
   public void visitClass(String className, InputStream in) {
     try {
-      byte[] byteCode = IOUtil.toByteArray(in);
-      ClassReader reader = new ClassReader(byteCode);
+      visitClass(className, ByteBuffer.wrap(in.readAllBytes()));
+    } catch (IOException exception) {
+      exception.printStackTrace();
+    }
+  }
 
-      final Set<String> constantPoolClassRefs =
-          ConstantPoolParser.getConstantPoolClassReferences(byteCode);
-      for (String string : constantPoolClassRefs) {
-        resultCollector.addName(string);
+  /** {@inheritDoc} */
+  @Override
+  public void visitClass(String className, ByteBuffer buffer) {
+    try {
+      if (analysisMode == AnalysisMode.FAST) {
+        for (String name : ConstantPoolParser.getConstantPoolTypeReferences(buffer)) {
+          resultCollector.addName(name);
+        }
+        return;
       }
 
+      ClassReader reader = classReader(buffer);
+
       AnnotationVisitor annotationVisitor = new DefaultAnnotationVisitor(resultCollector);
       SignatureVisitor signatureVisitor = new DefaultSignatureVisitor(resultCollector);
       FieldVisitor fieldVisitor = new DefaultFieldVisitor(annotationVisitor, resultCollector);
       MethodVisitor mv =
           new DefaultMethodVisitor(annotationVisitor, signatureVisitor, resultCollector);
+
+      if (analysisMode == AnalysisMode.API) {
+        // the constant pool holds the references of private members and method bodies
+        reader.accept(
+            new ApiClassVisitor(
+                signatureVisitor, annotationVisitor, fieldVisitor, mv, resultCollector),
+            ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES | ClassReader.SKIP_DEBUG);
+        return;
+      }
+
+      addConstantPoolClassReferences(reader);
+
       ClassVisitor classVisitor =
           new DefaultClassVisitor(
               signatureVisitor, annotationVisitor, fieldVisitor, mv, resultCollector);
 
-      reader.accept(classVisitor, 0);
-    } catch (IOException exception) {
-      exception.printStackTrace();
+      // instructions only reference classes through the constant pool, which is already added
+      reader.accept(classVisitor, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+      new CodeAttributeReader(reader).accept(mv);
     } catch (IndexOutOfBoundsException e) {
       // some bug inside ASM causes an IOB exception. Log it and move on?
       // this happens when the class isn't valid.
@@ -80,6 +110,37 @@ public class DependencyClassFileVisitor implements ClassFileVisitor {
     }
   }
 
+  /** ClassReader requires an array; read a heap buffer in place, and copy anything else. */
+  private static ClassReader classReader(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      return new ClassReader(
+          buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return new ClassReader(bytes);
+  }
+
+  /**
+   * Add the CONSTANT_Class entries of the constant pool, in case it contains references the
+   * visitors do not see. The constant pool already indexed by the ClassReader is used, so the
+   * class bytes are parsed only once.
+   */
+  private void addConstantPoolClassReferences(ClassReader reader) {
+    char[] charBuffer = new char[reader.getMaxStringLength()];
+    for (int item = 1, count = reader.getItemCount(); item < count; ++item) {
+      int offset = reader.getItem(item);
+      // the unusable entry following a long or double constant has no offset
+      if (offset > 0 && reader.readByte(offset - 1) == ConstantPoolParser.CONSTANT_CLASS) {
+        String name = reader.readUTF8(offset, charBuffer);
+        // filter out things from unnamed package, probably a false-positive
+        if (name.indexOf('/') != -1) {
+          resultCollector.addName(name);
+        }
+      }
+    }
+  }
+
   /**
    * getDependencies.
    *
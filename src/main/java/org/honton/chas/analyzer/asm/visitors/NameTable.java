@@ -0,0 +1,114 @@
+package org.honton.chas.analyzer.asm.visitors;
+
+/**
+ * Interns the class names read from class files, so a name referenced by many classes is held by
+ * one String. Names are looked up by their decoded characters, so no String is created for a name
+ * already in the table. The table is split into segments to reduce lock contention, and a segment
+ * is cleared when full, which bounds the memory held during a long-lived build.
+ */
+final class NameTable {
+  /** The table shared by all analyses. */
+  static final NameTable NAMES = new NameTable();
+
+  private static final int SEGMENTS = 16;
+  private static final int SEGMENT_SHIFT = 28;
+  private static final int INITIAL_CAPACITY = 256;
+  private static final int MAX_SEGMENT_CAPACITY = 1 << 16;
+
+  private final Segment[] segments = new Segment[SEGMENTS];
+
+  NameTable() {
+    for (int i = 0; i < SEGMENTS; ++i) {
+      segments[i] = new Segment();
+    }
+  }
+
+  /**
+   * Find or add a name.
+   *
+   * @param chars The characters of the name
+   * @param length The number of characters
+   * @return The interned name
+   */
+  String intern(char[] chars, int length) {
+    int hash = 0;
+    for (int i = 0; i < length; ++i) {
+      hash = 31 * hash + chars[i];
+    }
+    return segment(hash).intern(hash, chars, length, null);
+  }
+
+  /**
+   * Find or add a name.
+   *
+   * @param name The name
+   * @return The interned name
+   */
+  String intern(String name) {
+    int hash = name.hashCode();
+    return segment(hash).intern(hash, null, name.length(), name);
+  }
+
+  private Segment segment(int hash) {
+    // the top bits of a multiplicative hash, independent of the slot bits within the segment
+    return segments[hash * 0x9E3779B9 >>> SEGMENT_SHIFT];
+  }
+
+  /** An open addressing hash table of names. */
+  private static final class Segment {
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int size;
+
+    synchronized String intern(int hash, char[] chars, int length, String name) {
+      int mask = names.length - 1;
+      int slot = (hash ^ hash >>> 16) & mask;
+      for (String existing; (existing = names[slot]) != null; slot = slot + 1 & mask) {
+        if (existing.hashCode() == hash && matches(existing, chars, length, name)) {
+          return existing;
+        }
+      }
+      String added = name != null ? name : new String(chars, 0, length);
+      names[slot] = added;
+      if (++size * 2 > names.length) {
+        resize();
+      }
+      return added;
+    }
+
+    private static boolean matches(String existing, char[] chars, int length, String name) {
+      if (name != null) {
+        return existing.equals(name);
+      }
+      if (existing.length() != length) {
+        return false;
+      }
+      for (int i = 0; i < length; ++i) {
+        if (existing.charAt(i) != chars[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void resize() {
+      String[] old = names;
+      if (old.length >= MAX_SEGMENT_CAPACITY) {
+        names = new String[INITIAL_CAPACITY];
+        size = 0;
+        return;
+      }
+      names = new String[old.length * 2];
+      int mask = names.length - 1;
+      for (String name : old) {
+        if (name != null) {
+          int hash = name.hashCode();
+          int slot = (hash ^ hash >>> 16) & mask;
+          while (names[slot] != null) {
+            slot = slot + 1 & mask;
+          }
+          names[slot] = name;
+        }
+      }
+    }
+  }
+}
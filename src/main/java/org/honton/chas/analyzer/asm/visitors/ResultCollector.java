@@ -102,7 +102,8 @@ public class ResultCollector {
   public void add(String name) {
     // inner classes have equivalent compilation requirement as container class
     if (name.indexOf('$') < 0) {
-      classes.add(name);
+      // share one instance of a name among the dependencies of all classes
+      classes.add(NameTable.NAMES.intern(name));
     }
   }
 
@@ -0,0 +1,82 @@
+package org.honton.chas.analyzer.cache;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.apache.maven.plugin.logging.Log;
+import org.honton.chas.analyzer.api.ClassAnalyzer;
+
+/**
+ * Analyze individual classes of a jar from the {@link ClassIndexCache}. Cached classes are decoded
+ * from the mapped cache entry as they are requested. Classes not in the cache are analyzed by a
+ * delegate, which is opened upon the first miss. Newly analyzed classes are written to the cache
+ * upon close.
+ */
+class CachingClassAnalyzer implements ClassAnalyzer {
+  private final ClassIndexCache cache;
+  private final Path jar;
+  private final Log log;
+  private final Supplier<ClassAnalyzer> opener;
+  private final MappedDependencies analyzed;
+  private final Map<String, Set<String>> added = new ConcurrentHashMap<>();
+  private ClassAnalyzer delegate;
+
+  CachingClassAnalyzer(
+      ClassIndexCache cache,
+      Path jar,
+      Log log,
+      Supplier<ClassAnalyzer> opener,
+      MappedDependencies analyzed) {
+    this.cache = cache;
+    this.jar = jar;
+    this.log = log;
+    this.opener = opener;
+    this.analyzed = analyzed;
+  }
+
+  @Override
+  public Set<String> analyze(String className) {
+    // classes of the jar may be analyzed concurrently
+    Set<String> dependencies = added.get(className);
+    if (dependencies == null && analyzed != null) {
+      dependencies = analyzed.get(className);
+    }
+    if (dependencies == null) {
+      dependencies = delegate().analyze(className);
+      if (dependencies != null) {
+        added.put(className, dependencies);
+      }
+    }
+    return dependencies;
+  }
+
+  private synchronized ClassAnalyzer delegate() {
+    if (delegate == null) {
+      delegate = opener.get();
+    }
+    return delegate;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (delegate != null) {
+      delegate.close();
+    }
+    if (analyzed != null && analyzed.malformed()) {
+      log.debug("Malformed cache entry for " + jar);
+      cache.deleteDependencies(jar, log);
+    }
+    if (!added.isEmpty()) {
+      // merge with classes analyzed by any concurrent build
+      Map<String, Set<String>> merged = cache.readAnalyzedClasses(jar, log);
+      if (merged == null) {
+        merged = new HashMap<>();
+      }
+      merged.putAll(added);
+      cache.writeAnalyzedClasses(jar, merged, log);
+    }
+  }
+}
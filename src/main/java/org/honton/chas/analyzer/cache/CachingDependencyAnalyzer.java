@@ -0,0 +1,57 @@
+package org.honton.chas.analyzer.cache;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import org.apache.maven.plugin.logging.Log;
+import org.honton.chas.analyzer.api.ClassAnalyzer;
+import org.honton.chas.analyzer.api.DependencyAnalyzer;
+
+/** Analyze the classes of a jar from the {@link ClassIndexCache}, if present. */
+public class CachingDependencyAnalyzer implements DependencyAnalyzer {
+  private final ClassIndexCache cache;
+  private final DependencyAnalyzer delegate;
+
+  /**
+   * Create a caching DependencyAnalyzer.
+   *
+   * @param cache The persistent cache
+   * @param delegate The analyzer used when the cache does not hold the location
+   */
+  public CachingDependencyAnalyzer(ClassIndexCache cache, DependencyAnalyzer delegate) {
+    this.cache = cache;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Map<String, Set<String>> analyze(Path location, Log log) {
+    // directories are build output, which is not immutable
+    if (!Files.isRegularFile(location)) {
+      return delegate.analyze(location, log);
+    }
+    Map<String, Set<String>> dependencies = cache.readDependencies(location, log);
+    if (dependencies == null) {
+      dependencies = delegate.analyze(location, log);
+      // an empty analysis may be the result of a damaged jar; do not remember it
+      if (!dependencies.isEmpty()) {
+        cache.writeDependencies(location, dependencies, log);
+      }
+    }
+    return dependencies;
+  }
+
+  @Override
+  public ClassAnalyzer open(Path location, Log log) {
+    if (!Files.isRegularFile(location)) {
+      return delegate.open(location, log);
+    }
+    // the cached classes are looked up in place rather than read onto the heap
+    MappedDependencies analyzed = cache.mapDependencies(location, log);
+    if (analyzed == null) {
+      analyzed = cache.mapAnalyzedClasses(location, log);
+    }
+    return new CachingClassAnalyzer(
+        cache, location, log, () -> delegate.open(location, log), analyzed);
+  }
+}
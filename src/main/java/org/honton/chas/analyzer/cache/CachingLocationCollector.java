@@ -0,0 +1,41 @@
+package org.honton.chas.analyzer.cache;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import org.apache.maven.plugin.logging.Log;
+import org.honton.chas.analyzer.api.LocationCollector;
+
+/** List the classes of a jar from the {@link ClassIndexCache}, if present. */
+public class CachingLocationCollector implements LocationCollector {
+  private final ClassIndexCache cache;
+  private final LocationCollector delegate;
+
+  /**
+   * Create a caching LocationCollector.
+   *
+   * @param cache The persistent cache
+   * @param delegate The collector used when the cache does not hold the location
+   */
+  public CachingLocationCollector(ClassIndexCache cache, LocationCollector delegate) {
+    this.cache = cache;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Set<String> list(Path location, Log log) {
+    // directories are build output, which is not immutable
+    if (!Files.isRegularFile(location)) {
+      return delegate.list(location, log);
+    }
+    Set<String> classes = cache.readClasses(location, log);
+    if (classes == null) {
+      classes = delegate.list(location, log);
+      // an empty listing may be the result of a damaged jar; do not remember it
+      if (!classes.isEmpty()) {
+        cache.writeClasses(location, classes, log);
+      }
+    }
+    return classes;
+  }
+}
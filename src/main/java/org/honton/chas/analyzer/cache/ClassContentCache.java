@@ -0,0 +1,269 @@
+package org.honton.chas.analyzer.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import org.apache.maven.plugin.logging.Log;
+import org.honton.chas.analyzer.api.ClassContentIndex;
+
+/**
+ * Persistent store of the classes required by individual class files, keyed by class file path,
+ * CRC32 and size. Class files which recur across versions of a jar, or in jars relocated to other
+ * coordinates, are analyzed once.
+ *
+ * <p>Keys are spread over shards. Each shard is a compacted {@link MappedDependencies}, mapped upon
+ * first use, and a delta file of the keys appended since. Class files analyzed during the build
+ * are held in memory until {@link #write}, which appends them to the deltas of their shards. A
+ * delta is compacted into its shard once it outgrows a quarter of the shard, so the bytes
+ * rewritten stay in proportion to the bytes appended, however large the cache grows.
+ */
+public class ClassContentCache implements ClassContentIndex {
+  private static final int MAGIC = 0x44434335;
+  private static final int SHARD_BITS = 6;
+  private static final String CONTENT = "content";
+  private static final String DELTA = ".delta";
+  // the fewest bytes of a delta worth compacting into its shard
+  private static final long MIN_COMPACTION = 1 << 16;
+  private static final int BATCH_HEADER = 2 * Integer.BYTES;
+
+  private final Path directory;
+  private final String variant;
+  private final Shard[] shards = new Shard[1 << SHARD_BITS];
+  private final Map<String, Set<String>> added = new ConcurrentHashMap<>();
+
+  /**
+   * Create a content cache.
+   *
+   * @param directory The directory holding the shard files
+   * @param variant The name of the analysis variant, which distinguishes analyses
+   */
+  public ClassContentCache(Path directory, String variant) {
+    this.directory = directory;
+    this.variant = variant;
+  }
+
+  private static String key(String path, long crc, long size) {
+    return path + '@' + Long.toHexString(crc) + ':' + size;
+  }
+
+  private static int shard(String key) {
+    return key.hashCode() * 0x9E3779B9 >>> Integer.SIZE - SHARD_BITS;
+  }
+
+  @Override
+  public Set<String> get(String path, long crc, long size) {
+    String key = key(path, crc, size);
+    Set<String> classes = added.get(key);
+    return classes != null ? classes : shard(shard(key)).get(key);
+  }
+
+  @Override
+  public void put(String path, long crc, long size, Set<String> classes) {
+    added.put(key(path, crc, size), classes);
+  }
+
+  private synchronized Shard shard(int shard) {
+    if (shards[shard] == null) {
+      shards[shard] = new Shard(map(shardPath(shard)), readDelta(deltaPath(shard)));
+    }
+    return shards[shard];
+  }
+
+  private Path shardPath(int shard) {
+    return directory.resolve(CONTENT + '-' + variant + '.' + shard);
+  }
+
+  private Path deltaPath(int shard) {
+    return directory.resolve(CONTENT + '-' + variant + '.' + shard + DELTA);
+  }
+
+  private static MappedDependencies map(Path shardPath) {
+    try {
+      MappedByteBuffer buffer = VersionedFile.map(shardPath);
+      if (buffer == null) {
+        return null;
+      }
+      MappedDependencies dependencies =
+          buffer.limit() < Integer.BYTES || buffer.getInt(0) != MAGIC
+              ? null
+              : MappedDependencies.read(buffer.position(Integer.BYTES));
+      if (dependencies == null) {
+        VersionedFile.delete(shardPath);
+      }
+      return dependencies;
+    } catch (IOException ioException) {
+      return null;
+    }
+  }
+
+  /**
+   * Read the keys appended to a shard. Each append is a batch of the payload length, the CRC32 of
+   * the payload, and the payload; a batch cut short or damaged ends the delta.
+   */
+  private static Map<String, Set<String>> readDelta(Path deltaPath) {
+    Map<String, Set<String>> delta = new HashMap<>();
+    if (!Files.isRegularFile(deltaPath)) {
+      return delta;
+    }
+    ByteBuffer buffer;
+    try {
+      buffer = ByteBuffer.wrap(Files.readAllBytes(deltaPath));
+    } catch (IOException ioException) {
+      return delta;
+    }
+    while (buffer.remaining() >= BATCH_HEADER) {
+      int length = buffer.getInt();
+      int crc = buffer.getInt();
+      if (length < 0 || length > buffer.remaining()) {
+        break;
+      }
+      byte[] payload = new byte[length];
+      buffer.get(payload);
+      if (crc(payload) != crc || !readBatch(payload, delta)) {
+        break;
+      }
+    }
+    return delta;
+  }
+
+  private static boolean readBatch(byte[] payload, Map<String, Set<String>> delta) {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+      for (int count = in.readInt(); count > 0; --count) {
+        String key = in.readUTF();
+        int size = in.readInt();
+        Set<String> classes = new HashSet<>();
+        for (int i = 0; i < size; ++i) {
+          classes.add(in.readUTF());
+        }
+        delta.put(key, classes);
+      }
+      return true;
+    } catch (IOException ioException) {
+      return false;
+    }
+  }
+
+  private static byte[] batch(Map<String, Set<String>> classes) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(classes.size());
+      for (Map.Entry<String, Set<String>> entry : classes.entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.writeInt(entry.getValue().size());
+        for (String name : entry.getValue()) {
+          out.writeUTF(name);
+        }
+      }
+    }
+    byte[] payload = bytes.toByteArray();
+    return ByteBuffer.allocate(BATCH_HEADER + payload.length)
+        .putInt(payload.length)
+        .putInt(crc(payload))
+        .put(payload)
+        .array();
+  }
+
+  private static int crc(byte[] payload) {
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    return (int) crc.getValue();
+  }
+
+  /**
+   * Append the class files analyzed since the cache was created. Concurrent builds append to the
+   * same deltas.
+   *
+   * @param log The logger for any processing messages
+   */
+  public synchronized void write(Log log) {
+    Map<Integer, Map<String, Set<String>>> byShard = new HashMap<>();
+    for (Map.Entry<String, Set<String>> entry : added.entrySet()) {
+      byShard
+          .computeIfAbsent(shard(entry.getKey()), s -> new HashMap<>())
+          .put(entry.getKey(), entry.getValue());
+    }
+    byShard.forEach((shard, classes) -> write(shard, classes, log));
+    added.clear();
+  }
+
+  private void write(int shard, Map<String, Set<String>> classes, Log log) {
+    Path deltaPath = deltaPath(shard);
+    try {
+      Files.createDirectories(directory);
+      // a single write, so that appends of concurrent builds do not interleave
+      Files.write(deltaPath, batch(classes), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      Shard current = shards[shard];
+      if (current != null && current.malformed()
+          || Files.size(deltaPath)
+              > Math.max(MIN_COMPACTION, VersionedFile.size(shardPath(shard)) / 4)) {
+        compact(shard);
+      }
+    } catch (IOException ioException) {
+      log.warn("Could not write content cache " + deltaPath);
+    }
+    // read again upon next use
+    shards[shard] = null;
+  }
+
+  /**
+   * Merge the delta of a shard into a new version of the shard. The delta is first claimed by
+   * renaming it, so that keys appended by a concurrent build begin a new delta.
+   */
+  private void compact(int shard) throws IOException {
+    Path claimed = Files.createTempFile(directory, CONTENT, DELTA);
+    try {
+      try {
+        ClassIndexCache.move(deltaPath(shard), claimed);
+      } catch (NoSuchFileException compacted) {
+        return;
+      }
+      Path shardPath = shardPath(shard);
+      MappedDependencies prior = map(shardPath);
+      Map<String, Set<String>> priorClasses = prior != null ? prior.toMap() : null;
+      Map<String, Set<String>> merged = priorClasses != null ? priorClasses : new HashMap<>();
+      merged.putAll(readDelta(claimed));
+      VersionedFile.write(
+          shardPath,
+          out -> {
+            out.writeInt(MAGIC);
+            MappedDependencies.write(out, merged);
+          });
+    } finally {
+      Files.deleteIfExists(claimed);
+    }
+  }
+
+  /** The classes of a shard: the mapped compacted shard, and the keys appended since. */
+  private static final class Shard {
+    private final MappedDependencies compacted;
+    private final Map<String, Set<String>> appended;
+
+    private Shard(MappedDependencies compacted, Map<String, Set<String>> appended) {
+      this.compacted = compacted;
+      this.appended = appended;
+    }
+
+    private Set<String> get(String key) {
+      Set<String> classes = appended.get(key);
+      return classes != null || compacted == null ? classes : compacted.get(key);
+    }
+
+    private boolean malformed() {
+      return compacted != null && compacted.malformed();
+    }
+  }
+}
@@ -0,0 +1,362 @@
+package org.honton.chas.analyzer.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.apache.maven.plugin.logging.Log;
+import org.honton.chas.analyzer.api.ClassFileVisitorUtils;
+
+/**
+ * Persistent store of the classes listed and analyzed from immutable jars. Each jar has one entry
+ * per kind of data, keyed by the jar path: the class listing; the analysis of every class; and the
+ * analysis of the individual classes requested so far. An entry is ignored once the size or the
+ * modification time of the jar changes. Analyses are kept apart for each analysis variant.
+ *
+ * <p>Entries are binary: a header identifying the jar, then the data. A class listing is a table
+ * of the distinct class names and the indices into the table. An analysis is memory-mapped when
+ * read, so the classes of a jar are looked up in place; see {@link MappedDependencies}. As a
+ * mapped entry cannot be replaced on some platforms, each analysis is a {@link VersionedFile}.
+ */
+public class ClassIndexCache {
+  private static final int MAGIC = 0x44434933;
+  private static final String CLASSES = "classes";
+  private static final String DEPENDENCIES = "dependencies";
+  private static final String ANALYZED = "analyzed";
+
+  private final Path directory;
+  private final String variant;
+  private final String classesKind;
+
+  /**
+   * Create a cache of the base entries of multi-release jars.
+   *
+   * @param directory The directory holding the cache entries
+   * @param variant The name of the analysis variant, which distinguishes analyses
+   */
+  public ClassIndexCache(Path directory, String variant) {
+    this(directory, variant, ClassFileVisitorUtils.BASE_RELEASE);
+  }
+
+  /**
+   * Create a cache.
+   *
+   * @param directory The directory holding the cache entries
+   * @param variant The name of the analysis variant, which distinguishes analyses; this should
+   *     include the release
+   * @param release The Java release whose entries of multi-release jars are listed
+   */
+  public ClassIndexCache(Path directory, String variant, int release) {
+    this.directory = directory;
+    this.variant = variant;
+    classesKind =
+        release == ClassFileVisitorUtils.BASE_RELEASE ? CLASSES : CLASSES + '-' + release;
+  }
+
+  static String digest(String value) {
+    try {
+      byte[] hash =
+          MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8));
+      StringBuilder sb = new StringBuilder(hash.length * 2);
+      for (byte b : hash) {
+        sb.append(Character.forDigit(b >> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static Map<String, Integer> nameTable(Iterable<String> names) {
+    Map<String, Integer> table = new LinkedHashMap<>();
+    for (String name : names) {
+      table.putIfAbsent(name, table.size());
+    }
+    return table;
+  }
+
+  static void writeNameTable(DataOutputStream out, Map<String, Integer> table)
+      throws IOException {
+    out.writeInt(table.size());
+    for (String name : table.keySet()) {
+      out.writeUTF(name);
+    }
+  }
+
+  static String[] readNameTable(DataInputStream in) throws IOException {
+    String[] names = new String[in.readInt()];
+    for (int i = 0; i < names.length; ++i) {
+      names[i] = in.readUTF();
+    }
+    return names;
+  }
+
+  static void writeNames(
+      DataOutputStream out, Map<String, Integer> table, Set<String> names) throws IOException {
+    out.writeInt(names.size());
+    for (String name : names) {
+      out.writeInt(table.get(name));
+    }
+  }
+
+  static Set<String> readNames(DataInputStream in, String[] table) throws IOException {
+    int size = in.readInt();
+    Set<String> names = new HashSet<>(size * 4 / 3 + 1);
+    for (int i = 0; i < size; ++i) {
+      names.add(table[in.readInt()]);
+    }
+    return names;
+  }
+
+  static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException notSupported) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Read the classes listed from a jar.
+   *
+   * @param jar The jar
+   * @param log The logger for any processing messages
+   * @return The class names, or null if not cached
+   */
+  public Set<String> readClasses(Path jar, Log log) {
+    return read(jar, classesKind, log, in -> readNames(in, readNameTable(in)));
+  }
+
+  /**
+   * Write the classes listed from a jar.
+   *
+   * @param jar The jar
+   * @param classes The class names
+   * @param log The logger for any processing messages
+   */
+  public void writeClasses(Path jar, Set<String> classes, Log log) {
+    Map<String, Integer> table = nameTable(classes);
+    write(
+        jar,
+        classesKind,
+        log,
+        out -> {
+          writeNameTable(out, table);
+          writeNames(out, table, classes);
+        });
+  }
+
+  /**
+   * Read the analyzed dependencies of every class of a jar.
+   *
+   * @param jar The jar
+   * @param log The logger for any processing messages
+   * @return The map of class name to the set of classes required by that class, or null if not
+   *     cached
+   */
+  public Map<String, Set<String>> readDependencies(Path jar, Log log) {
+    return readDependencies(jar, DEPENDENCIES + '-' + variant, log);
+  }
+
+  /**
+   * Write the analyzed dependencies of every class of a jar.
+   *
+   * @param jar The jar
+   * @param dependencies The map of class name to the set of classes required by that class
+   * @param log The logger for any processing messages
+   */
+  public void writeDependencies(Path jar, Map<String, Set<String>> dependencies, Log log) {
+    writeDependencies(jar, DEPENDENCIES + '-' + variant, dependencies, log);
+  }
+
+  /**
+   * Read the analyzed dependencies of the individual classes of a jar analyzed so far.
+   *
+   * @param jar The jar
+   * @param log The logger for any processing messages
+   * @return The map of class name to the set of classes required by that class, or null if not
+   *     cached
+   */
+  public Map<String, Set<String>> readAnalyzedClasses(Path jar, Log log) {
+    return readDependencies(jar, ANALYZED + '-' + variant, log);
+  }
+
+  /**
+   * Map the analyzed dependencies of every class of a jar, without reading them.
+   *
+   * @param jar The jar
+   * @param log The logger for any processing messages
+   * @return The dependencies of the classes, or null if not cached
+   */
+  MappedDependencies mapDependencies(Path jar, Log log) {
+    return map(jar, DEPENDENCIES + '-' + variant, log);
+  }
+
+  /**
+   * Map the analyzed dependencies of the individual classes of a jar analyzed so far, without
+   * reading them.
+   *
+   * @param jar The jar
+   * @param log The logger for any processing messages
+   * @return The dependencies of the classes, or null if not cached
+   */
+  MappedDependencies mapAnalyzedClasses(Path jar, Log log) {
+    return map(jar, ANALYZED + '-' + variant, log);
+  }
+
+  /**
+   * Write the analyzed dependencies of the individual classes of a jar analyzed so far.
+   *
+   * @param jar The jar
+   * @param dependencies The map of class name to the set of classes required by that class
+   * @param log The logger for any processing messages
+   */
+  public void writeAnalyzedClasses(Path jar, Map<String, Set<String>> dependencies, Log log) {
+    writeDependencies(jar, ANALYZED + '-' + variant, dependencies, log);
+  }
+
+  private Map<String, Set<String>> readDependencies(Path jar, String kind, Log log) {
+    MappedDependencies dependencies = map(jar, kind, log);
+    return dependencies != null ? dependencies.toMap() : null;
+  }
+
+  private void writeDependencies(
+      Path jar, String kind, Map<String, Set<String>> dependencies, Log log) {
+    Path entry = entryPath(jar, kind);
+    try {
+      byte[] header = header(jar);
+      VersionedFile.write(
+          entry,
+          out -> {
+            out.write(header);
+            MappedDependencies.write(out, dependencies);
+          });
+    } catch (IOException ioException) {
+      log.warn("Could not write cache entry " + entry + " for " + jar);
+    }
+  }
+
+  private Path entryPath(Path jar, String kind) {
+    return directory.resolve(digest(jar.toAbsolutePath().toString()) + '.' + kind);
+  }
+
+  /** The header identifying the jar, which begins each entry. */
+  private static byte[] header(Path jar) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(MAGIC);
+      out.writeUTF(jar.toAbsolutePath().toString());
+      out.writeLong(Files.size(jar));
+      out.writeLong(Files.getLastModifiedTime(jar).toMillis());
+    }
+    return bytes.toByteArray();
+  }
+
+  private <T> T read(Path jar, String kind, Log log, EntryReader<T> reader) {
+    Path entry = entryPath(jar, kind);
+    if (!Files.isRegularFile(entry)) {
+      return null;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+      byte[] header = header(jar);
+      if (!Arrays.equals(in.readNBytes(header.length), header)) {
+        return null;
+      }
+      return reader.read(in);
+    } catch (IOException ioException) {
+      log.debug("Could not read cache entry " + entry + " for " + jar);
+      return null;
+    }
+  }
+
+  private MappedDependencies map(Path jar, String kind, Log log) {
+    Path entry = entryPath(jar, kind);
+    try {
+      MappedByteBuffer buffer = VersionedFile.map(entry);
+      if (buffer == null) {
+        return null;
+      }
+      byte[] header = header(jar);
+      if (buffer.limit() < header.length
+          || !buffer.slice().limit(header.length).equals(ByteBuffer.wrap(header))) {
+        return null;
+      }
+      MappedDependencies dependencies = MappedDependencies.read(buffer.position(header.length));
+      if (dependencies == null) {
+        log.debug("Malformed cache entry " + entry + " for " + jar);
+        delete(entry, log);
+      }
+      return dependencies;
+    } catch (IOException ioException) {
+      log.debug("Could not read cache entry " + entry + " for " + jar);
+      return null;
+    }
+  }
+
+  /**
+   * Delete the analyses of a jar, once found to be malformed. An entry still mapped may not be
+   * deletable on some platforms; it is replaced upon the next write instead.
+   *
+   * @param jar The jar
+   * @param log The logger for any processing messages
+   */
+  void deleteDependencies(Path jar, Log log) {
+    delete(entryPath(jar, DEPENDENCIES + '-' + variant), log);
+    delete(entryPath(jar, ANALYZED + '-' + variant), log);
+  }
+
+  private static void delete(Path entry, Log log) {
+    try {
+      VersionedFile.delete(entry);
+    } catch (IOException ioException) {
+      log.debug("Could not delete cache entry " + entry);
+    }
+  }
+
+  private void write(Path jar, String kind, Log log, EntryWriter writer) {
+    Path entry = entryPath(jar, kind);
+    try {
+      Files.createDirectories(directory);
+      Path temp = Files.createTempFile(directory, kind, ".tmp");
+      try {
+        try (DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+          out.write(header(jar));
+          writer.write(out);
+        }
+        move(temp, entry);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException ioException) {
+      log.warn("Could not write cache entry " + entry + " for " + jar);
+    }
+  }
+
+  @FunctionalInterface
+  private interface EntryReader<T> {
+    T read(DataInputStream in) throws IOException;
+  }
+
+  @FunctionalInterface
+  interface EntryWriter {
+    void write(DataOutputStream out) throws IOException;
+  }
+}
@@ -0,0 +1,223 @@
+package org.honton.chas.analyzer.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.Value;
+import org.apache.maven.plugin.logging.Log;
+import org.honton.chas.analyzer.api.ClassAnalyzer;
+import org.honton.chas.analyzer.api.ClassFileVisitorUtils;
+import org.honton.chas.analyzer.api.DependencyAnalyzer;
+
+/**
+ * Analyze the classes of a directory incrementally. The size and modification time of each class
+ * file, and the analysis of each class, are kept in a state file. Only the classes whose class
+ * files were added, changed or removed since the state was written are analyzed again.
+ */
+public class IncrementalDependencyAnalyzer implements DependencyAnalyzer {
+  private static final int MAGIC = 0x44434932;
+
+  private final Path stateDirectory;
+  private final String variant;
+  private final DependencyAnalyzer delegate;
+  private final boolean incrementalOpen;
+
+  /**
+   * Create an incremental DependencyAnalyzer.
+   *
+   * @param stateDirectory The directory holding the state of each analyzed directory
+   * @param variant The variant of analysis performed by the delegate
+   * @param delegate The analyzer of class files which changed
+   */
+  public IncrementalDependencyAnalyzer(
+      Path stateDirectory, String variant, DependencyAnalyzer delegate) {
+    this(stateDirectory, variant, delegate, true);
+  }
+
+  /**
+   * Create an incremental DependencyAnalyzer.
+   *
+   * @param stateDirectory The directory holding the state of each analyzed directory
+   * @param variant The variant of analysis performed by the delegate
+   * @param delegate The analyzer of class files which changed
+   * @param incrementalOpen Whether the delegate opens a directory in the same mode as it analyzes
+   *     a directory, so that an opened directory may be analyzed incrementally
+   */
+  public IncrementalDependencyAnalyzer(
+      Path stateDirectory, String variant, DependencyAnalyzer delegate, boolean incrementalOpen) {
+    this.stateDirectory = stateDirectory;
+    this.variant = variant;
+    this.delegate = delegate;
+    this.incrementalOpen = incrementalOpen;
+  }
+
+  private static String containerName(String classPath) {
+    String className = ClassFileVisitorUtils.pathToClassName(classPath);
+    int dollarIdx = className.indexOf('$');
+    return dollarIdx < 0 ? className : className.substring(0, dollarIdx);
+  }
+
+  private static Map<String, Stamp> scan(Path directory) throws IOException {
+    Map<String, Stamp> stamps = new HashMap<>();
+    ClassFileVisitorUtils.walkDirectory(
+        directory,
+        (path, attributes) ->
+            stamps.put(
+                path, new Stamp(attributes.size(), attributes.lastModifiedTime().toMillis())));
+    return stamps;
+  }
+
+  @Override
+  public Map<String, Set<String>> analyze(Path location, Log log) {
+    if (!Files.isDirectory(location)) {
+      return delegate.analyze(location, log);
+    }
+    Map<String, Stamp> stamps;
+    try {
+      stamps = scan(location);
+    } catch (IOException ioException) {
+      log.debug("Could not scan " + location);
+      return delegate.analyze(location, log);
+    }
+
+    State prior = read(location, log);
+    if (prior == null) {
+      Map<String, Set<String>> dependencies = delegate.analyze(location, log);
+      write(location, new State(stamps, dependencies), log);
+      return dependencies;
+    }
+
+    // a class is analyzed again when any class file of it or of its inner classes changed
+    Set<String> changed = new HashSet<>();
+    for (Map.Entry<String, Stamp> stamp : stamps.entrySet()) {
+      if (!stamp.getValue().equals(prior.getStamps().get(stamp.getKey()))) {
+        changed.add(containerName(stamp.getKey()));
+      }
+    }
+    for (String path : prior.getStamps().keySet()) {
+      if (!stamps.containsKey(path)) {
+        changed.add(containerName(path));
+      }
+    }
+    if (changed.isEmpty()) {
+      return prior.getDependencies();
+    }
+
+    List<String> classPaths = new ArrayList<>();
+    for (String path : stamps.keySet()) {
+      if (changed.contains(containerName(path))) {
+        classPaths.add(path);
+      }
+    }
+    log.debug("Analyzing " + changed.size() + " changed classes within " + location);
+
+    Map<String, Set<String>> dependencies = new HashMap<>(prior.getDependencies());
+    dependencies.keySet().removeAll(changed);
+    if (!classPaths.isEmpty()) {
+      dependencies.putAll(delegate.analyze(location, classPaths, log));
+    }
+    write(location, new State(stamps, dependencies), log);
+    return dependencies;
+  }
+
+  @Override
+  public ClassAnalyzer open(Path location, Log log) {
+    if (!incrementalOpen || !Files.isDirectory(location)) {
+      return delegate.open(location, log);
+    }
+    return analyze(location, log)::get;
+  }
+
+  private Path statePath(Path directory) {
+    return stateDirectory.resolve(
+        ClassIndexCache.digest(directory.toAbsolutePath().toString()) + '.' + variant);
+  }
+
+  private State read(Path directory, Log log) {
+    Path state = statePath(directory);
+    if (!Files.isRegularFile(state)) {
+      return null;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(state)))) {
+      if (in.readInt() != MAGIC || !in.readUTF().equals(directory.toAbsolutePath().toString())) {
+        return null;
+      }
+      int files = in.readInt();
+      Map<String, Stamp> stamps = new HashMap<>(files * 4 / 3 + 1);
+      for (int i = 0; i < files; ++i) {
+        stamps.put(in.readUTF(), new Stamp(in.readLong(), in.readLong()));
+      }
+      String[] table = ClassIndexCache.readNameTable(in);
+      int classes = in.readInt();
+      Map<String, Set<String>> dependencies = new HashMap<>(classes * 4 / 3 + 1);
+      for (int i = 0; i < classes; ++i) {
+        dependencies.put(table[in.readInt()], ClassIndexCache.readNames(in, table));
+      }
+      return new State(stamps, dependencies);
+    } catch (IOException ioException) {
+      log.debug("Could not read analysis state " + state + " for " + directory);
+      return null;
+    }
+  }
+
+  private void write(Path directory, State state, Log log) {
+    Path entry = statePath(directory);
+    Map<String, Set<String>> dependencies = state.getDependencies();
+    Set<String> names = new HashSet<>(dependencies.keySet());
+    dependencies.values().forEach(names::addAll);
+    Map<String, Integer> table = ClassIndexCache.nameTable(names);
+    try {
+      Files.createDirectories(stateDirectory);
+      Path temp = Files.createTempFile(stateDirectory, variant, ".tmp");
+      try {
+        try (DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+          out.writeInt(MAGIC);
+          out.writeUTF(directory.toAbsolutePath().toString());
+          out.writeInt(state.getStamps().size());
+          for (Map.Entry<String, Stamp> stamp : state.getStamps().entrySet()) {
+            out.writeUTF(stamp.getKey());
+            out.writeLong(stamp.getValue().getSize());
+            out.writeLong(stamp.getValue().getLastModified());
+          }
+          ClassIndexCache.writeNameTable(out, table);
+          out.writeInt(dependencies.size());
+          for (Map.Entry<String, Set<String>> dependency : dependencies.entrySet()) {
+            out.writeInt(table.get(dependency.getKey()));
+            ClassIndexCache.writeNames(out, table, dependency.getValue());
+          }
+        }
+        ClassIndexCache.move(temp, entry);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException ioException) {
+      log.debug("Could not write analysis state " + entry + " for " + directory);
+    }
+  }
+
+  /** The size and modification time of a class file. */
+  @Value
+  private static class Stamp {
+    long size;
+    long lastModified;
+  }
+
+  /** The class files of a directory, and the analysis of their classes. */
+  @Value
+  private static class State {
+    Map<String, Stamp> stamps;
+    Map<String, Set<String>> dependencies;
+  }
+}
@@ -0,0 +1,263 @@
+package org.honton.chas.analyzer.cache;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The analyzed dependencies of the classes of a jar, read in place from a memory-mapped cache
+ * entry. Only the record of each class looked up is decoded, so the heap held does not grow with
+ * the number of classes in the jar.
+ *
+ * <p>The entry holds the number of classes, an open addressing table of class name hash to record
+ * offset, the records, and the distinct names as length-prefixed UTF-8. A record is the offset of
+ * the class name, the number of required classes, and the offset of each required class name.
+ *
+ * <p>A damaged entry may hold any offset, so every offset is checked against the entry before use.
+ * A malformed entry holds no classes, and is reported by {@link #malformed()} for replacement.
+ */
+class MappedDependencies {
+  private static final int EMPTY_SLOT = -1;
+  private static final int HEADER_SIZE = 8;
+
+  private final ByteBuffer buffer;
+  private final int size;
+  private final int mask;
+  private volatile boolean malformed;
+
+  private MappedDependencies(ByteBuffer buffer, int size, int slots) {
+    this.buffer = buffer;
+    this.size = size;
+    mask = slots - 1;
+  }
+
+  private static int slot(String className, int mask) {
+    return className.hashCode() * 0x9E3779B9 & mask;
+  }
+
+  private static int slotCount(int size) {
+    return Integer.highestOneBit(Math.max(size, 1) * 2 - 1) * 2;
+  }
+
+  /**
+   * Write dependencies in the mapped form.
+   *
+   * @param out The output of the cache entry
+   * @param dependencies The map of class name to the set of classes required by that class
+   * @throws IOException if the entry cannot be written
+   */
+  static void write(DataOutputStream out, Map<String, Set<String>> dependencies)
+      throws IOException {
+    int slotCount = slotCount(dependencies.size());
+    int offset = HEADER_SIZE + slotCount * Integer.BYTES;
+    int[] slots = new int[slotCount];
+    Arrays.fill(slots, EMPTY_SLOT);
+    for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+      int slot = slot(entry.getKey(), slotCount - 1);
+      while (slots[slot] != EMPTY_SLOT) {
+        slot = slot + 1 & slotCount - 1;
+      }
+      slots[slot] = offset;
+      offset += (2 + entry.getValue().size()) * Integer.BYTES;
+    }
+
+    Map<String, Integer> nameOffsets = new LinkedHashMap<>();
+    Map<String, byte[]> encoded = new HashMap<>();
+    for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+      offset = addName(nameOffsets, encoded, entry.getKey(), offset);
+      for (String name : entry.getValue()) {
+        offset = addName(nameOffsets, encoded, name, offset);
+      }
+    }
+
+    out.writeInt(dependencies.size());
+    out.writeInt(slotCount);
+    for (int recordOffset : slots) {
+      out.writeInt(recordOffset);
+    }
+    for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+      out.writeInt(nameOffsets.get(entry.getKey()));
+      out.writeInt(entry.getValue().size());
+      for (String name : entry.getValue()) {
+        out.writeInt(nameOffsets.get(name));
+      }
+    }
+    for (String name : nameOffsets.keySet()) {
+      byte[] bytes = encoded.get(name);
+      out.writeShort(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static int addName(
+      Map<String, Integer> nameOffsets, Map<String, byte[]> encoded, String name, int offset) {
+    if (nameOffsets.containsKey(name)) {
+      return offset;
+    }
+    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    nameOffsets.put(name, offset);
+    encoded.put(name, bytes);
+    return offset + Short.BYTES + bytes.length;
+  }
+
+  /**
+   * Read dependencies in the mapped form.
+   *
+   * @param buffer The entry, from its first byte to its end
+   * @return The dependencies, or null if the entry is malformed
+   */
+  static MappedDependencies read(ByteBuffer buffer) {
+    if (buffer.remaining() < HEADER_SIZE) {
+      return null;
+    }
+    ByteBuffer entry = buffer.slice();
+    int size = entry.getInt(0);
+    int slots = entry.getInt(Integer.BYTES);
+    // an open addressing table must have an empty slot
+    if (size < 0
+        || slots <= size
+        || Integer.bitCount(slots) != 1
+        || entry.limit() < HEADER_SIZE + (long) slots * Integer.BYTES) {
+      return null;
+    }
+    return new MappedDependencies(entry, size, slots);
+  }
+
+  /**
+   * The number of classes held.
+   *
+   * @return The number of classes
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Whether the entry was found to be malformed.
+   *
+   * @return true, if a lookup found an offset outside the entry, or a table without an empty slot
+   */
+  boolean malformed() {
+    return malformed;
+  }
+
+  /**
+   * Find the classes required by a class.
+   *
+   * @param className The name of the class
+   * @return The set of classes required by the class, or null if the class is not held or the
+   *     entry is malformed
+   */
+  Set<String> get(String className) {
+    if (malformed) {
+      return null;
+    }
+    try {
+      return find(className);
+    } catch (IndexOutOfBoundsException outOfBounds) {
+      malformed = true;
+      return null;
+    }
+  }
+
+  private Set<String> find(String className) {
+    byte[] key = className.getBytes(StandardCharsets.UTF_8);
+    int slot = slot(className, mask);
+    for (int probes = 0; probes <= mask; ++probes, slot = slot + 1 & mask) {
+      int record = record(slot);
+      if (record == EMPTY_SLOT) {
+        return null;
+      }
+      if (nameEquals(buffer.getInt(record), key)) {
+        return names(record, new HashMap<>());
+      }
+    }
+    throw new IndexOutOfBoundsException("No empty slot");
+  }
+
+  /**
+   * Decode every class held.
+   *
+   * @return The map of class name to the set of classes required by that class, or null if the
+   *     entry is malformed
+   */
+  Map<String, Set<String>> toMap() {
+    // share one instance of a name among the dependencies of all classes
+    Map<Integer, String> decoded = new HashMap<>();
+    Map<String, Set<String>> dependencies = new HashMap<>(size * 4 / 3 + 1);
+    try {
+      for (int slot = 0; slot <= mask; ++slot) {
+        int record = record(slot);
+        if (record != EMPTY_SLOT) {
+          dependencies.put(name(buffer.getInt(record), decoded), names(record, decoded));
+        }
+      }
+      return dependencies;
+    } catch (IndexOutOfBoundsException outOfBounds) {
+      malformed = true;
+      return null;
+    }
+  }
+
+  /** The offset of the record in a slot, which must lie after the table. */
+  private int record(int slot) {
+    int record = buffer.getInt(HEADER_SIZE + slot * Integer.BYTES);
+    if (record != EMPTY_SLOT) {
+      checkRange(record, 2 * Integer.BYTES);
+      if (record < HEADER_SIZE + (mask + 1) * Integer.BYTES) {
+        throw new IndexOutOfBoundsException("Record within table: " + record);
+      }
+    }
+    return record;
+  }
+
+  /** Check that a range lies within the entry. */
+  private void checkRange(int offset, long length) {
+    if (offset < 0 || length < 0 || offset + length > buffer.limit()) {
+      throw new IndexOutOfBoundsException("Range outside entry: " + offset + '+' + length);
+    }
+  }
+
+  private Set<String> names(int record, Map<Integer, String> decoded) {
+    int count = buffer.getInt(record + Integer.BYTES);
+    checkRange(record + 2 * Integer.BYTES, (long) count * Integer.BYTES);
+    Set<String> names = new HashSet<>(count * 4 / 3 + 1);
+    for (int i = 0; i < count; ++i) {
+      names.add(name(buffer.getInt(record + (2 + i) * Integer.BYTES), decoded));
+    }
+    return names;
+  }
+
+  private String name(int offset, Map<Integer, String> decoded) {
+    return decoded.computeIfAbsent(
+        offset,
+        o -> {
+          checkRange(o, Short.BYTES);
+          byte[] bytes = new byte[buffer.getShort(o) & 0xFFFF];
+          checkRange(o, Short.BYTES + bytes.length);
+          buffer.duplicate().position(o + Short.BYTES).get(bytes);
+          return new String(bytes, StandardCharsets.UTF_8);
+        });
+  }
+
+  private boolean nameEquals(int offset, byte[] key) {
+    checkRange(offset, Short.BYTES);
+    if ((buffer.getShort(offset) & 0xFFFF) != key.length) {
+      return false;
+    }
+    checkRange(offset, Short.BYTES + key.length);
+    for (int i = 0; i < key.length; ++i) {
+      if (buffer.get(offset + Short.BYTES + i) != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
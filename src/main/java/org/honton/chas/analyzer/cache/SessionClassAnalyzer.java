@@ -0,0 +1,47 @@
+package org.honton.chas.analyzer.cache;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.honton.chas.analyzer.api.ClassAnalyzer;
+
+/**
+ * Analyze individual classes of a jar from the {@link SessionClassIndex}. Classes not in the index
+ * are analyzed by a delegate, which is opened upon the first miss, and added to the index.
+ */
+class SessionClassAnalyzer implements ClassAnalyzer {
+  private final Supplier<ClassAnalyzer> opener;
+  private final Map<String, Set<String>> analyzed;
+  private ClassAnalyzer delegate;
+
+  SessionClassAnalyzer(Supplier<ClassAnalyzer> opener, Map<String, Set<String>> analyzed) {
+    this.opener = opener;
+    this.analyzed = analyzed;
+  }
+
+  @Override
+  public Set<String> analyze(String className) {
+    Set<String> dependencies = analyzed.get(className);
+    if (dependencies == null) {
+      dependencies = delegate().analyze(className);
+      if (dependencies != null) {
+        analyzed.put(className, dependencies);
+      }
+    }
+    return dependencies;
+  }
+
+  private synchronized ClassAnalyzer delegate() {
+    if (delegate == null) {
+      delegate = opener.get();
+    }
+    return delegate;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (delegate != null) {
+      delegate.close();
+    }
+  }
+}
@@ -0,0 +1,196 @@
+package org.honton.chas.analyzer.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import lombok.Value;
+import org.eclipse.aether.SessionData;
+
+/**
+ * The classes listed and analyzed during one Maven session, shared by every goal execution of
+ * every module of the reactor. A jar is identified by its location, size and modification time.
+ * Directories are build output, which is not immutable, and are not held.
+ *
+ * <p>The index is safe for use by concurrent module builds; a jar being listed or analyzed by one
+ * thread is awaited by others rather than processed twice. Memory is bounded by the number of
+ * classes held; the least recently used jars are evicted beyond that.
+ */
+public class SessionClassIndex {
+  private enum Kind {
+    CLASSES,
+    DEPENDENCIES,
+    ANALYZED
+  }
+
+  private final WeightedLruCache<Key, Object> entries;
+  // listings and analyses in progress
+  private final Map<Key, CompletableFuture<Object>> pending = new ConcurrentHashMap<>();
+
+  /**
+   * Create an index.
+   *
+   * @param maxClasses The number of classes, summed over all listings and analyses, held before
+   *     the least recently used jars are evicted
+   */
+  public SessionClassIndex(long maxClasses) {
+    entries = new WeightedLruCache<>(maxClasses, SessionClassIndex::weigh);
+  }
+
+  /**
+   * Get the index of a session, creating it upon first use.
+   *
+   * @param data The data of the repository session
+   * @param maxClasses The bound of the index, if created
+   * @return The index shared by the session
+   */
+  public static SessionClassIndex of(SessionData data, long maxClasses) {
+    // the class is unique to the plugin's class loader, so other plugin versions do not collide
+    Object index = data.get(SessionClassIndex.class);
+    while (index == null) {
+      SessionClassIndex created = new SessionClassIndex(maxClasses);
+      if (data.set(SessionClassIndex.class, null, created)) {
+        return created;
+      }
+      index = data.get(SessionClassIndex.class);
+    }
+    return (SessionClassIndex) index;
+  }
+
+  private static int weigh(Object value) {
+    return value instanceof Map ? ((Map<?, ?>) value).size() : ((Collection<?>) value).size();
+  }
+
+  private static Key key(Path location, Kind kind, String variant) {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(location, BasicFileAttributes.class);
+      if (!attributes.isRegularFile()) {
+        return null;
+      }
+      return new Key(
+          location.toAbsolutePath(),
+          attributes.size(),
+          attributes.lastModifiedTime().toMillis(),
+          kind,
+          variant);
+    } catch (IOException ioException) {
+      return null;
+    }
+  }
+
+  /**
+   * Get the classes of a location, listing them upon first use.
+   *
+   * @param location The jar or directory
+   * @param variant The variant of listing, such as the release of multi-release jars
+   * @param lister The supplier of the listing
+   * @return The class names
+   */
+  Set<String> classes(Path location, String variant, Supplier<Set<String>> lister) {
+    return get(key(location, Kind.CLASSES, variant), lister);
+  }
+
+  /**
+   * Get the complete analysis of a location, analyzing it upon first use.
+   *
+   * @param location The jar or directory
+   * @param variant The variant of analysis
+   * @param analyzer The supplier of the analysis
+   * @return The map of class name to dependencies
+   */
+  Map<String, Set<String>> dependencies(
+      Path location, String variant, Supplier<Map<String, Set<String>>> analyzer) {
+    return get(key(location, Kind.DEPENDENCIES, variant), analyzer);
+  }
+
+  /**
+   * Get the classes of a jar analyzed so far, to which further analyses may be added.
+   *
+   * @param location The jar or directory
+   * @param variant The variant of analysis
+   * @return The thread-safe map of class name to dependencies, or null for a directory
+   */
+  @SuppressWarnings("unchecked")
+  Map<String, Set<String>> analyzedClasses(Path location, String variant) {
+    Key key = key(location, Kind.DEPENDENCIES, variant);
+    if (key == null) {
+      return null;
+    }
+    Map<String, Set<String>> complete = (Map<String, Set<String>>) entries.get(key);
+    if (complete != null) {
+      return complete;
+    }
+    return (Map<String, Set<String>>)
+        entries.computeIfAbsent(
+            new Key(key.location, key.size, key.lastModified, Kind.ANALYZED, variant),
+            k -> new ConcurrentHashMap<String, Set<String>>());
+  }
+
+  /** The number of classes held. */
+  long size() {
+    return entries.weight();
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T get(Key key, Supplier<T> supplier) {
+    if (key == null) {
+      return supplier.get();
+    }
+    T value = (T) entries.get(key);
+    if (value != null) {
+      return value;
+    }
+
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    CompletableFuture<Object> inProgress = pending.putIfAbsent(key, future);
+    if (inProgress != null) {
+      return (T) await(inProgress);
+    }
+    try {
+      value = (T) entries.get(key);
+      if (value == null) {
+        value = supplier.get();
+        // an empty result may be the result of a damaged jar; do not remember it
+        if (weigh(value) > 0) {
+          entries.putIfAbsent(key, value);
+        }
+      }
+      future.complete(value);
+      return value;
+    } catch (RuntimeException runtimeException) {
+      future.completeExceptionally(runtimeException);
+      throw runtimeException;
+    } finally {
+      pending.remove(key, future);
+    }
+  }
+
+  private static Object await(CompletableFuture<Object> future) {
+    try {
+      return future.join();
+    } catch (CompletionException completionException) {
+      Throwable cause = completionException.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw completionException;
+    }
+  }
+
+  /** The identity of a jar and the kind and variant of its listing or analysis. */
+  @Value
+  private static class Key {
+    Path location;
+    long size;
+    long lastModified;
+    Kind kind;
+    String variant;
+  }
+}
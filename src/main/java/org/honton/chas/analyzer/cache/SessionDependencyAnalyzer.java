@@ -0,0 +1,43 @@
+package org.honton.chas.analyzer.cache;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import org.apache.maven.plugin.logging.Log;
+import org.honton.chas.analyzer.api.ClassAnalyzer;
+import org.honton.chas.analyzer.api.DependencyAnalyzer;
+
+/** Analyze the classes of a jar from the {@link SessionClassIndex}, if already analyzed. */
+public class SessionDependencyAnalyzer implements DependencyAnalyzer {
+  private final SessionClassIndex index;
+  private final String variant;
+  private final DependencyAnalyzer delegate;
+
+  /**
+   * Create a DependencyAnalyzer sharing analyses within the session.
+   *
+   * @param index The index of the session
+   * @param variant The variant of analysis performed by the delegate
+   * @param delegate The analyzer used when the index does not hold the location
+   */
+  public SessionDependencyAnalyzer(
+      SessionClassIndex index, String variant, DependencyAnalyzer delegate) {
+    this.index = index;
+    this.variant = variant;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Map<String, Set<String>> analyze(Path location, Log log) {
+    return index.dependencies(location, variant, () -> delegate.analyze(location, log));
+  }
+
+  @Override
+  public ClassAnalyzer open(Path location, Log log) {
+    Map<String, Set<String>> analyzed = index.analyzedClasses(location, variant);
+    if (analyzed == null) {
+      return delegate.open(location, log);
+    }
+    return new SessionClassAnalyzer(() -> delegate.open(location, log), analyzed);
+  }
+}
@@ -0,0 +1,42 @@
+package org.honton.chas.analyzer.cache;
+
+import java.nio.file.Path;
+import java.util.Set;
+import org.apache.maven.plugin.logging.Log;
+import org.honton.chas.analyzer.api.LocationCollector;
+
+/** List the classes of a jar from the {@link SessionClassIndex}, if already listed. */
+public class SessionLocationCollector implements LocationCollector {
+  private final SessionClassIndex index;
+  private final String variant;
+  private final LocationCollector delegate;
+
+  /**
+   * Create a LocationCollector sharing listings within the session.
+   *
+   * @param index The index of the session
+   * @param delegate The collector used when the index does not hold the location
+   */
+  public SessionLocationCollector(SessionClassIndex index, LocationCollector delegate) {
+    this(index, "", delegate);
+  }
+
+  /**
+   * Create a LocationCollector sharing listings within the session.
+   *
+   * @param index The index of the session
+   * @param variant The variant of listing performed by the delegate
+   * @param delegate The collector used when the index does not hold the location
+   */
+  public SessionLocationCollector(
+      SessionClassIndex index, String variant, LocationCollector delegate) {
+    this.index = index;
+    this.variant = variant;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Set<String> list(Path location, Log log) {
+    return index.classes(location, variant, () -> delegate.list(location, log));
+  }
+}
@@ -0,0 +1,155 @@
+package org.honton.chas.analyzer.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file which is memory-mapped by readers while writers replace it. A mapped file cannot be
+ * replaced on some platforms, so each version is written under a new name. A small pointer file,
+ * which is read as a stream and never mapped, names the current version. Earlier versions are
+ * deleted once replaced; those still mapped are deleted by a later write.
+ */
+final class VersionedFile {
+  private static final int MAGIC = 0x44435646;
+
+  private VersionedFile() {}
+
+  private static Path versionPath(Path path, long version) {
+    return path.resolveSibling(path.getFileName() + ".v" + version);
+  }
+
+  /** The current version, or -1 if there is none. */
+  private static long version(Path path) {
+    if (!Files.isRegularFile(path)) {
+      return -1;
+    }
+    try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+      return in.readInt() == MAGIC ? in.readLong() : -1;
+    } catch (IOException ioException) {
+      return -1;
+    }
+  }
+
+  /**
+   * Map the current version of a file.
+   *
+   * @param path The path of the pointer file
+   * @return The whole current version, or null if there is none
+   * @throws IOException if the version cannot be mapped
+   */
+  static MappedByteBuffer map(Path path) throws IOException {
+    long version = version(path);
+    if (version < 0) {
+      return null;
+    }
+    // the mapping remains valid after the channel is closed
+    try (FileChannel channel =
+        FileChannel.open(versionPath(path, version), StandardOpenOption.READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (NoSuchFileException replaced) {
+      return null;
+    }
+  }
+
+  /**
+   * The size of the current version of a file.
+   *
+   * @param path The path of the pointer file
+   * @return The number of bytes of the current version, or zero if there is none
+   */
+  static long size(Path path) {
+    long version = version(path);
+    try {
+      return version < 0 ? 0 : Files.size(versionPath(path, version));
+    } catch (IOException ioException) {
+      return 0;
+    }
+  }
+
+  /**
+   * Write the next version of a file, and make it current.
+   *
+   * @param path The path of the pointer file
+   * @param writer The writer of the content of the version
+   * @throws IOException if the version cannot be written
+   */
+  static void write(Path path, ClassIndexCache.EntryWriter writer) throws IOException {
+    long prior = version(path);
+    long version = prior + 1;
+    write(path, versionPath(path, version), writer);
+    write(
+        path,
+        path,
+        out -> {
+          out.writeInt(MAGIC);
+          out.writeLong(version);
+        });
+    deleteVersionsBefore(path, version);
+  }
+
+  private static void write(Path path, Path target, ClassIndexCache.EntryWriter writer)
+      throws IOException {
+    Path directory = path.getParent();
+    Files.createDirectories(directory);
+    Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+    try {
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        writer.write(out);
+      }
+      ClassIndexCache.move(temp, target);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /** Delete every version of a file below a version, however many earlier writes left behind. */
+  private static void deleteVersionsBefore(Path path, long version) {
+    String prefix = path.getFileName() + ".v";
+    try (DirectoryStream<Path> versions =
+        Files.newDirectoryStream(
+            path.getParent(), sibling -> sibling.getFileName().toString().startsWith(prefix))) {
+      for (Path versionPath : versions) {
+        String suffix = versionPath.getFileName().toString().substring(prefix.length());
+        if (!suffix.isEmpty()
+            && suffix.length() < 19
+            && suffix.chars().allMatch(Character::isDigit)
+            && Long.parseLong(suffix) < version) {
+          deleteIfUnmapped(versionPath);
+        }
+      }
+    } catch (IOException ioException) {
+      // a later write sweeps again
+      return;
+    }
+  }
+
+  private static boolean deleteIfUnmapped(Path versionPath) {
+    try {
+      return Files.deleteIfExists(versionPath);
+    } catch (IOException stillMapped) {
+      // a later write deletes it
+      return false;
+    }
+  }
+
+  /**
+   * Delete a file and its versions.
+   *
+   * @param path The path of the pointer file
+   * @throws IOException if the pointer file cannot be deleted
+   */
+  static void delete(Path path) throws IOException {
+    Files.deleteIfExists(path);
+    deleteVersionsBefore(path, Long.MAX_VALUE);
+  }
+}
@@ -0,0 +1,111 @@
+package org.honton.chas.analyzer.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * A thread-safe map that evicts its least recently used entries when their total weight exceeds a
+ * limit. The weight of a mutable value is measured again whenever the value is accessed.
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+class WeightedLruCache<K, V> {
+  private final Map<K, Weighted<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final long maxWeight;
+  private final ToIntFunction<V> weigher;
+  private long weight;
+
+  /**
+   * Create a cache.
+   *
+   * @param maxWeight The total weight above which entries are evicted
+   * @param weigher The function measuring the weight of a value
+   */
+  WeightedLruCache(long maxWeight, ToIntFunction<V> weigher) {
+    this.maxWeight = maxWeight;
+    this.weigher = weigher;
+  }
+
+  /**
+   * Get a value, marking it as recently used.
+   *
+   * @param key The key
+   * @return The value, or null if not present
+   */
+  synchronized V get(K key) {
+    Weighted<V> entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    int current = weigher.applyAsInt(entry.value);
+    if (current != entry.weight) {
+      weight += current - entry.weight;
+      entry.weight = current;
+      evict(key);
+    }
+    return entry.value;
+  }
+
+  /**
+   * Add a value, unless a value is already present.
+   *
+   * @param key The key
+   * @param value The value to add
+   * @return The value present
+   */
+  synchronized V putIfAbsent(K key, V value) {
+    V existing = get(key);
+    if (existing != null) {
+      return existing;
+    }
+    Weighted<V> entry = new Weighted<>(value, weigher.applyAsInt(value));
+    entries.put(key, entry);
+    weight += entry.weight;
+    evict(key);
+    return value;
+  }
+
+  /**
+   * Get a value, adding one if not present. The function should be quick, since the cache is
+   * locked while it runs.
+   *
+   * @param key The key
+   * @param creator The function creating a value from the key
+   * @return The value present
+   */
+  synchronized V computeIfAbsent(K key, Function<K, V> creator) {
+    V existing = get(key);
+    return existing != null ? existing : putIfAbsent(key, creator.apply(key));
+  }
+
+  /** The total weight of the entries. */
+  synchronized long weight() {
+    return weight;
+  }
+
+  /** Evict the eldest entries until within the limit, keeping the entry just used. */
+  private void evict(K keep) {
+    Iterator<Map.Entry<K, Weighted<V>>> eldest = entries.entrySet().iterator();
+    while (weight > maxWeight && eldest.hasNext()) {
+      Map.Entry<K, Weighted<V>> entry = eldest.next();
+      if (!entry.getKey().equals(keep)) {
+        weight -= entry.getValue().weight;
+        eldest.remove();
+      }
+    }
+  }
+
+  private static final class Weighted<V> {
+    private final V value;
+    private int weight;
+
+    Weighted(V value, int weight) {
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+}
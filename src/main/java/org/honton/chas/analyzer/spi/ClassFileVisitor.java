@@ -19,7 +19,9 @@ package org.honton.chas.analyzer.spi;
  * under the License.
  */
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * ClassFileVisitor interface.
@@ -34,4 +36,17 @@ public interface ClassFileVisitor {
    * @param in a {@link InputStream} object.
    */
   void visitClass(String className, InputStream in);
+
+  /**
+   * Visit the class file bytes held in a buffer, which may be memory-mapped. The buffer is only
+   * valid during this call, and must not be retained. The default copies the bytes to a stream.
+   *
+   * @param className a {@link String} object.
+   * @param buffer the class file bytes between position and limit.
+   */
+  default void visitClass(String className, ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    visitClass(className, new ByteArrayInputStream(bytes));
+  }
 }
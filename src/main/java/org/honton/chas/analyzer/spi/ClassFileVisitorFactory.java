@@ -23,14 +23,38 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import lombok.Getter;
+import org.honton.chas.analyzer.api.AnalysisMode;
 import org.honton.chas.analyzer.asm.visitors.DependencyClassFileVisitor;
 
 /** Factory for ClassFileVisitor */
 public class ClassFileVisitorFactory implements Function<String, ClassFileVisitor> {
-  @Getter
-  private final Map<String, Set<String>> dependencies = new HashMap<>();
+  @Getter private final Map<String, Set<String>> dependencies;
+
+  private final AnalysisMode analysisMode;
+  private final boolean concurrent;
+
+  public ClassFileVisitorFactory() {
+    this(AnalysisMode.FULL);
+  }
+
+  public ClassFileVisitorFactory(AnalysisMode analysisMode) {
+    this(analysisMode, false);
+  }
+
+  /**
+   * Create a factory.
+   *
+   * @param analysisMode How deeply class files are analyzed
+   * @param concurrent Whether visitors are created and used from many threads
+   */
+  public ClassFileVisitorFactory(AnalysisMode analysisMode, boolean concurrent) {
+    this.analysisMode = analysisMode;
+    this.concurrent = concurrent;
+    dependencies = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+  }
 
   /**
    * Create a ClassFileVisitor for the given className
@@ -43,6 +67,11 @@ public class ClassFileVisitorFactory implements Function<String, ClassFileVisito
     int dollarIdx = className.indexOf('$');
     String stubName = dollarIdx < 0 ? className : className.substring(0, dollarIdx);
     return new DependencyClassFileVisitor(
-        dependencies.computeIfAbsent(stubName, cn -> new HashSet<>()));
+        dependencies.computeIfAbsent(stubName, cn -> newClasses()), analysisMode);
+  }
+
+  // the classes of a container are shared by the visitors of its inner classes
+  private Set<String> newClasses() {
+    return concurrent ? ConcurrentHashMap.newKeySet() : new HashSet<>();
   }
 }
@@ -1,26 +1,46 @@
 package org.honton.chas.dependency.analyzescope;
 
 import java.io.File;
-import java.io.IOException;
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
+import org.honton.chas.analyzer.api.AnalysisMode;
+import org.honton.chas.analyzer.api.ClassContentIndex;
+import org.honton.chas.analyzer.api.ClassFileVisitorUtils;
 import org.honton.chas.analyzer.api.LocationCollector;
 import org.honton.chas.analyzer.api.DependencyAnalyzer;
 import org.honton.chas.analyzer.asm.AsmLocationCollector;
 import org.honton.chas.analyzer.asm.AsmDependencyAnalyzer;
+import org.honton.chas.analyzer.cache.CachingDependencyAnalyzer;
+import org.honton.chas.analyzer.cache.CachingLocationCollector;
+import org.honton.chas.analyzer.cache.ClassContentCache;
+import org.honton.chas.analyzer.cache.ClassIndexCache;
+import org.honton.chas.analyzer.cache.IncrementalDependencyAnalyzer;
+import org.honton.chas.analyzer.cache.SessionClassIndex;
+import org.honton.chas.analyzer.cache.SessionDependencyAnalyzer;
+import org.honton.chas.analyzer.cache.SessionLocationCollector;
 
 public abstract class AbstractAnalyzeScopeMojo extends AbstractMojo {
   /** The Maven project to analyze. */
   @Parameter(defaultValue = "${project}", readonly = true, required = true)
   MavenProject project;
 
+  /** The Maven session, which shares listings and analyses between goal executions. */
+  @Parameter(defaultValue = "${session}", readonly = true, required = true)
+  MavenSession session;
+
   /** Whether to fail the build if a dependency warning is found. */
   @Parameter(property = "dependency-check.fail", defaultValue = "true")
   private boolean failOnWarning;
@@ -29,6 +49,80 @@ public abstract class AbstractAnalyzeScopeMojo extends AbstractMojo {
   @Parameter(property = "dependency-check.skip", defaultValue = "false")
   boolean skip;
 
+  /**
+   * Number of threads used to index dependencies and to parse the classes of the build output. A
+   * value less than one uses one thread per available processor.
+   */
+  @Parameter(property = "dependency-check.threads", defaultValue = "0")
+  int threads;
+
+  /**
+   * How deeply class files are analyzed. <code>full</code> visits every declaration, signature,
+   * annotation and instruction. <code>fast</code> reads only the constant pool of each class: its
+   * class constants and the descriptors and signatures held as strings. Method bodies are never
+   * visited, but the types of invoked members may be reported as used.
+   */
+  @Parameter(property = "dependency-check.analysisMode", defaultValue = "full")
+  String analysisMode;
+
+  /**
+   * How deeply the classes of dependency jars are analyzed, when reached from the classes of the
+   * project. <code>fast</code> and <code>full</code> are as for analysisMode. <code>api</code>
+   * visits only the class header and the declarations of public and protected members, which are
+   * all that compiling against a class requires. When not set, analysisMode is used.
+   */
+  @Parameter(property = "dependency-check.dependencyAnalysisMode")
+  String dependencyAnalysisMode;
+
+  /**
+   * The Java release whose classes are selected from multi-release jars. When not set, only the
+   * base classes of multi-release jars are analyzed.
+   */
+  @Parameter(property = "dependency-check.release", defaultValue = "${maven.compiler.release}")
+  String release;
+
+  /**
+   * Whether to keep the classes listed and analyzed from dependency jars in a persistent cache. The
+   * analysis of each class file is also kept by content, and reused for identical class files of
+   * other jars.
+   */
+  @Parameter(property = "dependency-check.cache", defaultValue = "true")
+  boolean cache;
+
+  /**
+   * The number of classes, summed over the jars listed and analyzed, held in memory for reuse by
+   * the goals of every module in the build. The least recently used jars are evicted beyond this.
+   * The value of the first execution in the build applies.
+   */
+  @Parameter(property = "dependency-check.sessionCacheSize", defaultValue = "1000000")
+  long sessionCacheSize;
+
+  /**
+   * Whether to keep the analysis of each class of the build output, so that only class files which
+   * changed are analyzed again by the next build.
+   */
+  @Parameter(property = "dependency-check.incremental", defaultValue = "true")
+  boolean incremental;
+
+  /**
+   * Whether to track the classes of a package held by a single dependency as one package. Listing
+   * and reachability then work on packages, and only packages split across artifacts are tracked
+   * class by class. This holds far less on large classpaths, but every class of a reached package
+   * is analyzed, so a dependency may be found used through a class the project does not reach.
+   */
+  @Parameter(property = "dependency-check.packageGranularity", defaultValue = "false")
+  boolean packageGranularity;
+
+  /** The directory holding the incremental analysis state of the build output. */
+  @Parameter(defaultValue = "${project.build.directory}/dependency-check", readonly = true)
+  File stateDirectory;
+
+  /** The directory holding the persistent cache. */
+  @Parameter(
+      property = "dependency-check.cacheDirectory",
+      defaultValue = "${settings.localRepository}/.dependency-check-cache")
+  File cacheDirectory;
+
   /**
    * List of dependencies to ignore. Any dependency on this list will be excluded from
    * the "declared but unused" and the "used but undeclared" lists. The filter syntax is:
@@ -78,9 +172,6 @@ public abstract class AbstractAnalyzeScopeMojo extends AbstractMojo {
    */
   @Parameter private List<String> ignoreUnusedDeclaredDependencies;
 
-  private LocationCollector locationCollector = new AsmLocationCollector();
-  private DependencyAnalyzer dependencyAnalyzer = new AsmDependencyAnalyzer();
-
   // Mojo methods -----------------------------------------------------------
 
   /*
@@ -101,61 +192,208 @@ public abstract class AbstractAnalyzeScopeMojo extends AbstractMojo {
 
   abstract boolean skip();
 
-  abstract Artifact workingArtifact();
-
-  abstract Collection<Artifact> impliedArtifacts();
+  /**
+   * The scopes to check.
+   *
+   * @return The module scopes, in the order of their reports
+   */
+  abstract List<ModuleScope> moduleScopes();
 
-  abstract Set<String> getDeclaredScopes();
+  // private methods --------------------------------------------------------
 
-  abstract Set<String> getClasspathScopes();
+  private AnalysisMode analysisMode() throws MojoExecutionException {
+    String message = "analysisMode must be fast or full, not " + analysisMode;
+    AnalysisMode mode;
+    try {
+      mode = AnalysisMode.valueOf(analysisMode.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException illegalArgumentException) {
+      throw new MojoExecutionException(message, illegalArgumentException);
+    }
+    // the classes of the project must be analyzed through their method bodies
+    if (mode == AnalysisMode.API) {
+      throw new MojoExecutionException(message);
+    }
+    return mode;
+  }
 
-  // private methods --------------------------------------------------------
+  private AnalysisMode dependencyAnalysisMode(AnalysisMode mode) throws MojoExecutionException {
+    if (dependencyAnalysisMode == null || dependencyAnalysisMode.isBlank()) {
+      return mode;
+    }
+    try {
+      return AnalysisMode.valueOf(dependencyAnalysisMode.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException illegalArgumentException) {
+      throw new MojoExecutionException(
+          "dependencyAnalysisMode must be fast, full or api, not " + dependencyAnalysisMode,
+          illegalArgumentException);
+    }
+  }
 
-  private Set<Artifact> getDependencyArtifactsByScope(Collection<String> acceptableScopes) {
-    Set<Artifact> scopedArtifacts = new HashSet<>();
-    for (Artifact artifact : project.getDependencyArtifacts()) {
-      if (acceptableScopes.contains(artifact.getScope())) {
-        scopedArtifacts.add(artifact);
-      }
+  private int release() throws MojoExecutionException {
+    if (release == null || release.isBlank()) {
+      return ClassFileVisitorUtils.BASE_RELEASE;
+    }
+    try {
+      return Integer.parseInt(release.trim());
+    } catch (NumberFormatException numberFormatException) {
+      throw new MojoExecutionException(
+          "release must be a Java release number, not " + release, numberFormatException);
     }
-    return scopedArtifacts;
+  }
+
+  private int parallelism() {
+    return threads < 1 ? Runtime.getRuntime().availableProcessors() : threads;
   }
 
   private boolean checkDependencies() throws MojoExecutionException {
+    List<ModuleScope> moduleScopes = moduleScopes();
+
+    int release = release();
+    LocationCollector locationCollector = new AsmLocationCollector(release);
+    AnalysisMode mode = analysisMode();
+    AnalysisMode dependencyMode = dependencyAnalysisMode(mode);
+    int parallelism = parallelism();
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    // multi-release jars hold different classes for each release
+    String listingVariant =
+        release == ClassFileVisitorUtils.BASE_RELEASE ? "" : Integer.toString(release);
+    String dependencyVariant = dependencyMode.name().toLowerCase(Locale.ROOT);
+    String modeVariant =
+        mode == dependencyMode
+            ? dependencyVariant
+            : mode.name().toLowerCase(Locale.ROOT) + '-' + dependencyVariant;
+    String variant = modeVariant + (listingVariant.isEmpty() ? "" : '-' + listingVariant);
+    // class files are keyed by their content, which is the same for every release
+    ClassContentCache contentCache =
+        cache ? new ClassContentCache(cacheDirectory.toPath(), dependencyVariant) : null;
+    DependencyAnalyzer dependencyAnalyzer =
+        new AsmDependencyAnalyzer(
+            mode,
+            dependencyMode,
+            release,
+            pool,
+            parallelism,
+            contentCache != null ? contentCache : ClassContentIndex.NONE);
+    if (incremental) {
+      dependencyAnalyzer =
+          new IncrementalDependencyAnalyzer(
+              stateDirectory.toPath(), variant, dependencyAnalyzer, mode == dependencyMode);
+    }
+    if (cache) {
+      ClassIndexCache classIndexCache =
+          new ClassIndexCache(cacheDirectory.toPath(), variant, release);
+      locationCollector = new CachingLocationCollector(classIndexCache, locationCollector);
+      dependencyAnalyzer = new CachingDependencyAnalyzer(classIndexCache, dependencyAnalyzer);
+    }
+    // the goals of every module share the jars listed and analyzed
+    SessionClassIndex sessionClassIndex =
+        SessionClassIndex.of(session.getRepositorySession().getData(), sessionCacheSize);
+    locationCollector =
+        new SessionLocationCollector(sessionClassIndex, listingVariant, locationCollector);
+    dependencyAnalyzer =
+        new SessionDependencyAnalyzer(sessionClassIndex, variant, dependencyAnalyzer);
+
     try {
-      AnalyzeClassUsage analyzeClassUsage = analyzeClassUsage();
-      boolean reported = logAnalysis(analyzeClassUsage);
+      if (moduleScopes.size() == 1) {
+        return checkDependencies(
+            moduleScopes.get(0), locationCollector, dependencyAnalyzer, pool, getLog());
+      }
+      return checkDependencies(moduleScopes, locationCollector, dependencyAnalyzer, pool);
+    } finally {
+      pool.shutdown();
+      if (contentCache != null) {
+        contentCache.write(getLog());
+      }
+    }
+  }
+
+  /**
+   * Check several scopes concurrently. Every location is listed once, before any scope is checked.
+   * The messages of each scope are reported together, in the order of the scopes.
+   */
+  private boolean checkDependencies(
+      List<ModuleScope> moduleScopes,
+      LocationCollector locationCollector,
+      DependencyAnalyzer dependencyAnalyzer,
+      Executor executor)
+      throws MojoExecutionException {
+    ReactorClassIndex reactorClassIndex = new ReactorClassIndex(locationCollector);
+    for (ModuleScope moduleScope : moduleScopes) {
+      reactorClassIndex.index(getLog(), moduleScope.impliedArtifacts(), executor);
+      reactorClassIndex.index(getLog(), moduleScope.declaredDependencies(), executor);
+    }
+
+    List<BufferedLog> logs = new ArrayList<>(moduleScopes.size());
+    List<CompletableFuture<Boolean>> checks = new ArrayList<>(moduleScopes.size());
+    for (ModuleScope moduleScope : moduleScopes) {
+      BufferedLog log = new BufferedLog(getLog());
+      logs.add(log);
+      checks.add(
+          CompletableFuture.supplyAsync(
+              () ->
+                  checkDependencies(
+                      moduleScope, reactorClassIndex, dependencyAnalyzer, executor, log),
+              executor));
+    }
+
+    reactorClassIndex.replay();
+    boolean reported = false;
+    MojoExecutionException failure = null;
+    for (int i = 0; i < moduleScopes.size(); ++i) {
+      getLog().info("Checking " + moduleScopes.get(i));
+      try {
+        reported |= checks.get(i).join();
+      } catch (CompletionException completionException) {
+        if (failure == null) {
+          failure = new MojoExecutionException("Analysis failed", completionException.getCause());
+        }
+      } finally {
+        logs.get(i).replay();
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return reported;
+  }
+
+  private boolean checkDependencies(
+      ModuleScope moduleScope,
+      LocationCollector locationCollector,
+      DependencyAnalyzer dependencyAnalyzer,
+      Executor executor,
+      Log log) {
+    try (AnalyzeClassUsage analyzeClassUsage =
+        analyzeClassUsage(moduleScope, locationCollector, dependencyAnalyzer, executor, log)) {
+      boolean reported = logAnalysis(analyzeClassUsage, log);
 
       if (!reported) {
-        getLog().info("No dependency problems found");
+        log.info("No dependency problems found");
       }
 
       return reported;
-    } catch (IOException ioException) {
-      throw new MojoExecutionException("Analysis failed", ioException);
     }
   }
 
-  private AnalyzeClassUsage analyzeClassUsage() throws IOException {
-    Artifact artifact = project.getArtifact();
-    if (artifact.getFile() == null) {
-      String outputDirectory = project.getBuild().getOutputDirectory();
-      getLog().warn("Setting File " + outputDirectory + " for Artifact " + artifact);
-      artifact.setFile(new File(outputDirectory));
-    }
-
-    AnalyzeClassUsage analyzer = new AnalyzeClassUsage(locationCollector, dependencyAnalyzer);
-    analyzer.addImpliedDependencies(getLog(), impliedArtifacts());
+  private AnalyzeClassUsage analyzeClassUsage(
+      ModuleScope moduleScope,
+      LocationCollector locationCollector,
+      DependencyAnalyzer dependencyAnalyzer,
+      Executor executor,
+      Log log) {
+    AnalyzeClassUsage analyzer =
+        new AnalyzeClassUsage(
+            locationCollector, dependencyAnalyzer, executor, packageGranularity);
+    analyzer.addImpliedDependencies(log, moduleScope.impliedArtifacts());
 
-    Set<String> acceptableScopes = getDeclaredScopes();
-    Set<Artifact> declaredDependencies = getDependencyArtifactsByScope(acceptableScopes);
-    analyzer.addDeclaredDependencies(getLog(), declaredDependencies);
+    Set<Artifact> declaredDependencies = moduleScope.declaredDependencies();
+    analyzer.addDeclaredDependencies(log, declaredDependencies);
 
     // Determine the set of classes required to compile the sources. These classes are the
     // used-classes set.
     // Determine in which dependencies each used class is present.  Add these dependencies to
     // used-dependencies
-    analyzer.addUsedClassNames(getLog(), workingArtifact());
+    analyzer.addUsedClassNames(log, moduleScope.workingArtifact());
 
     // The declared-dependency set contains the main-artifact and the compile-scope dependencies
     // from  resolver
@@ -169,13 +407,9 @@ public abstract class AbstractAnalyzeScopeMojo extends AbstractMojo {
     analyzer.removeIgnoreUnusedDeclaredDependencies(ignoreUnusedDeclaredDependencies);
     analyzer.removeIgnoreUnusedDeclaredDependencies(ignoreDependencies);
 
-    Set<String> classpathScopes = getClasspathScopes();
-    Set<Artifact> classpathDependencies = getDependencyArtifactsByScope(classpathScopes);
-    classpathDependencies.add(artifact);
-
     // Add each dependency in used-dependencies that is not in classpath-dependencies to
     // used-but-undeclared
-    analyzer.setClasspathDependencies(classpathDependencies);
+    analyzer.setClasspathDependencies(moduleScope.classpathDependencies());
     // Remove any dependency that matches patterns declared in the  ignoreUsedUndeclaredDependencies
     // parameter
     analyzer.removeIgnoredUsedUndeclaredDependencies(ignoreUsedUndeclaredDependencies);
@@ -184,14 +418,14 @@ public abstract class AbstractAnalyzeScopeMojo extends AbstractMojo {
     return analyzer;
   }
 
-  private boolean logAnalysis(AnalyzeClassUsage analyzeClassUsage) {
+  private boolean logAnalysis(AnalyzeClassUsage analyzeClassUsage, Log log) {
     // If the multiple-definition map is non-empty, log the class name and artifacts the class is
     // defined in.
-    boolean reported = analyzeClassUsage.logMultipleDefinitions(getLog());
+    boolean reported = analyzeClassUsage.logMultipleDefinitions(log);
     // log remaining members of declared-but-unused set to the console
-    reported |= analyzeClassUsage.logDeclaredButUnused(getLog());
+    reported |= analyzeClassUsage.logDeclaredButUnused(log);
     // log remaining members of used-but-undeclared set to the console
-    reported |= analyzeClassUsage.logUsedButUndeclared(getLog());
+    reported |= analyzeClassUsage.logUsedButUndeclared(log);
     return reported;
   }
 }
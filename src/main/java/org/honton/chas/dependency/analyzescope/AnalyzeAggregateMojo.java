@@ -0,0 +1,61 @@
+package org.honton.chas.dependency.analyzescope;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Analyzes the main and test dependencies of every module in the reactor, and determines which are:
+ * used and declared; used and undeclared; unused and declared. Each jar and classes directory is
+ * listed once for the whole reactor, and the modules are analyzed concurrently. This goal assumes
+ * that the <code>test-compile</code> phase has been executed for every module.
+ *
+ * @see AnalyzeMainMojo
+ * @see AnalyzeTestMojo
+ */
+@Mojo(
+    name = "aggregate",
+    aggregator = true,
+    requiresDependencyResolution = ResolutionScope.TEST,
+    threadSafe = true)
+public class AnalyzeAggregateMojo extends AbstractAnalyzeScopeMojo {
+
+  /** The modules of the reactor. */
+  @Parameter(defaultValue = "${reactorProjects}", readonly = true, required = true)
+  List<MavenProject> reactorProjects;
+
+  @Override
+  boolean skip() {
+    if (skip) {
+      getLog().info("Skipping dependency-check:aggregate execution");
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  List<ModuleScope> moduleScopes() {
+    List<ModuleScope> moduleScopes = new ArrayList<>();
+    for (MavenProject reactorProject : reactorProjects) {
+      if (exists(reactorProject.getBuild().getOutputDirectory())) {
+        moduleScopes.add(ModuleScope.main(reactorProject, getLog()));
+      }
+      String testOutputDirectory = reactorProject.getBuild().getTestOutputDirectory();
+      if (exists(testOutputDirectory)) {
+        moduleScopes.add(ModuleScope.test(reactorProject, new File(testOutputDirectory), getLog()));
+      }
+    }
+    if (moduleScopes.isEmpty()) {
+      getLog().info("No classes directory");
+    }
+    return moduleScopes;
+  }
+
+  private static boolean exists(String directory) {
+    return directory != null && new File(directory).exists();
+  }
+}
@@ -6,47 +6,79 @@ import org.apache.maven.artifact.handler.DefaultArtifactHandler;
 import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.shared.artifact.filter.StrictPatternExcludesArtifactFilter;
+import org.honton.chas.analyzer.api.ClassAnalyzer;
 import org.honton.chas.analyzer.api.DependencyAnalyzer;
 import org.honton.chas.analyzer.api.LocationCollector;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
-class AnalyzeClassUsage {
+class AnalyzeClassUsage implements AutoCloseable {
   // fake artifact to hold classes from unknown artifact,  will usually hold classes from the jvm
   // rt.jar
   private static final Artifact TRANSITIVE = createTransitive();
 
   private final LocationCollector locationCollector;
   private final DependencyAnalyzer dependencyAnalyzer;
-  // className to artifact mapping
-  private final Map<String, Artifact> classNameToArtifact;
-  // artifact to analyzed classes
-  private final Map<Artifact, Map<String, Set<String>>> usedDependencies;
-  // resolved className to artifact mapping
-  private final Map<String, Artifact> resolvedClasses;
+  // executor for independent artifact scans
+  private final Executor executor;
+  // whether classes of packages held by a single artifact are tracked by package
+  private final boolean packageGranularity;
+  // className to providing artifact, resolved artifact and required classes
+  private final ClassGraph classGraph;
+  private final int transitive;
+  // artifact to analyzer of its classes, opened once whichever thread first needs it
+  private final Map<Artifact, CompletableFuture<ClassAnalyzer>> usedDependencies;
   // classNames provided by multiple artifacts
   private final Map<String, List<Artifact>> multipleDefinition;
+  // keys of the packages held by several artifacts, whose classes are tracked individually
+  private final Set<String> splitPackages;
   // dependencies that are implied by context
   private final List<Artifact> impliedDependencies;
   private final Set<Artifact> declaredButUnused;
   private final Set<Artifact> usedButUndeclared;
 
-  AnalyzeClassUsage(LocationCollector locationCollector, DependencyAnalyzer dependencyAnalyzer) {
+  AnalyzeClassUsage(
+      LocationCollector locationCollector, DependencyAnalyzer dependencyAnalyzer, Executor executor) {
+    this(locationCollector, dependencyAnalyzer, executor, false);
+  }
+
+  /**
+   * Create an analysis.
+   *
+   * @param locationCollector The lister of the classes of each artifact
+   * @param dependencyAnalyzer The analyzer of the classes of each artifact
+   * @param executor The executor for independent artifact scans
+   * @param packageGranularity Whether to track the classes of a package held by a single artifact
+   *     as one package, rather than individually
+   */
+  AnalyzeClassUsage(
+      LocationCollector locationCollector,
+      DependencyAnalyzer dependencyAnalyzer,
+      Executor executor,
+      boolean packageGranularity) {
     this.locationCollector = locationCollector;
     this.dependencyAnalyzer = dependencyAnalyzer;
+    this.executor = executor;
+    this.packageGranularity = packageGranularity;
 
-    classNameToArtifact = new HashMap<>();
+    classGraph = new ClassGraph();
+    transitive = classGraph.artifactId(TRANSITIVE);
     usedDependencies = new HashMap<>();
-    resolvedClasses = new HashMap<>();
 
     multipleDefinition = new HashMap<>();
+    splitPackages = new HashSet<>();
     impliedDependencies = new ArrayList<>();
     declaredButUnused = new HashSet<>();
     usedButUndeclared = new HashSet<>();
@@ -67,15 +99,31 @@ class AnalyzeClassUsage {
     log.info(da.getGroupId() + ':' + da.getArtifactId() + ':' + da.getVersion() + " does not have file");
   }
 
+  private static void logDuplicate(Log log, String className, Artifact prior, Artifact artifact) {
+    log.error("Duplicate artifact for " + className + "; " + prior + " and " + artifact);
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException completionException) {
+      Throwable cause = completionException.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw completionException;
+    }
+  }
+
   /**
    * Add classNames available in a collection of Artifact to classNameToArtifact
    *
    * @param impliedDependencies The implicit artifacts
    */
   void addImpliedDependencies(Log log, Collection<Artifact> impliedDependencies) {
-    for (Artifact artifact : impliedDependencies) {
-      if (addClassesToArtifactMapping(log, artifact)) {
-        this.impliedDependencies.add(artifact);
+    for (Map.Entry<Artifact, Set<String>> listing : listClasses(log, impliedDependencies)) {
+      if (addClassesToArtifactMapping(log, listing.getKey(), listing.getValue())) {
+        this.impliedDependencies.add(listing.getKey());
       }
     }
     this.impliedDependencies.add(TRANSITIVE);
@@ -88,34 +136,126 @@ class AnalyzeClassUsage {
    * @param dependencyArtifacts The artifacts to examine
    */
   void addDeclaredDependencies(Log log, Collection<Artifact> dependencyArtifacts) {
-    for (Artifact artifact : dependencyArtifacts) {
-      addClassesToArtifactMapping(log, artifact);
+    for (Map.Entry<Artifact, Set<String>> listing : listClasses(log, dependencyArtifacts)) {
+      addClassesToArtifactMapping(log, listing.getKey(), listing.getValue());
     }
   }
 
-  private boolean addClassesToArtifactMapping(Log log, Artifact artifact) {
-    File file = artifact.getFile();
-    if (file == null) {
-      logMissingFile(log, artifact);
-      return false;
+  /**
+   * List the classes of each artifact concurrently. The listings are returned in the iteration
+   * order of the artifacts, so that merging them is independent of scheduling. The messages of
+   * each listing, and of each artifact without a file, are logged in the same order.
+   */
+  private List<Map.Entry<Artifact, Set<String>>> listClasses(
+      Log log, Collection<Artifact> artifacts) {
+    List<Map.Entry<Artifact, CompletableFuture<Set<String>>>> futures = new ArrayList<>();
+    List<BufferedLog> logs = new ArrayList<>();
+    for (Artifact artifact : artifacts) {
+      File file = artifact.getFile();
+      BufferedLog listingLog = new BufferedLog(log);
+      logs.add(listingLog);
+      futures.add(
+          Map.entry(
+              artifact,
+              file == null
+                  ? CompletableFuture.completedFuture(Set.of())
+                  : CompletableFuture.supplyAsync(
+                      () -> locationCollector.list(file.toPath(), listingLog), executor)));
+    }
+
+    List<Map.Entry<Artifact, Set<String>>> listings = new ArrayList<>(futures.size());
+    for (int i = 0; i < futures.size(); ++i) {
+      Artifact artifact = futures.get(i).getKey();
+      if (artifact.getFile() == null) {
+        logMissingFile(log, artifact);
+        continue;
+      }
+      try {
+        listings.add(Map.entry(artifact, join(futures.get(i).getValue())));
+      } finally {
+        logs.get(i).replay();
+      }
+    }
+    return listings;
+  }
+
+  private boolean addClassesToArtifactMapping(Log log, Artifact artifact, Set<String> classNames) {
+    int artifactId = classGraph.artifactId(artifact);
+    if (!packageGranularity) {
+      addClasses(artifactId, classNames);
+    } else {
+      for (Map.Entry<String, List<String>> pkg :
+          PackageClassAnalyzer.byPackage(classNames).entrySet()) {
+        String packageKey = pkg.getKey();
+        if (!splitPackages.contains(packageKey)) {
+          int prior = classGraph.setProvider(classGraph.id(packageKey), artifactId);
+          if (prior == ClassGraph.NONE) {
+            continue;
+          }
+          splitPackage(log, packageKey, prior);
+        }
+        addClasses(artifactId, pkg.getValue());
+      }
+    }
+    return !classNames.isEmpty();
+  }
+
+  /**
+   * Track the classes of a package individually, once the package is found in a second artifact.
+   * The classes of the package in the first artifact are listed again, as only the package was
+   * kept.
+   */
+  private void splitPackage(Log log, String packageKey, int prior) {
+    splitPackages.add(packageKey);
+    File file = classGraph.artifact(prior).getFile();
+    if (file != null) {
+      List<String> classNames =
+          PackageClassAnalyzer.byPackage(locationCollector.list(file.toPath(), log))
+              .get(packageKey);
+      if (classNames != null) {
+        addClasses(prior, classNames);
+      }
     }
-    Set<String> classNames = locationCollector.list(file.toPath(), log);
+  }
 
+  private void addClasses(int artifactId, Collection<String> classNames) {
     for (String className : classNames) {
-      Artifact prior = classNameToArtifact.put(className, artifact);
-      if (prior != null) {
+      int prior = classGraph.setProvider(classGraph.id(className), artifactId);
+      if (prior != ClassGraph.NONE) {
         List<Artifact> artifacts =
             multipleDefinition.computeIfAbsent(
                 className,
                 cn -> {
                   List<Artifact> multiple = new ArrayList<>();
-                  multiple.add(prior);
+                  multiple.add(classGraph.artifact(prior));
                   return multiple;
                 });
-        artifacts.add(artifact);
+        artifacts.add(classGraph.artifact(artifactId));
       }
     }
-    return !classNames.isEmpty();
+  }
+
+  /**
+   * The key of a class in the class graph. This is the class name, unless tracking by package and
+   * the package is held by a single artifact.
+   */
+  private String key(String className) {
+    if (!packageGranularity) {
+      return className;
+    }
+    String packageKey = PackageClassAnalyzer.packageKey(className);
+    return splitPackages.contains(packageKey) ? className : packageKey;
+  }
+
+  private Collection<String> keys(Set<String> classNames) {
+    if (!packageGranularity) {
+      return classNames;
+    }
+    Set<String> keys = new HashSet<>();
+    for (String className : classNames) {
+      keys.add(key(className));
+    }
+    return keys;
   }
 
   public void scanDeclaredDependencies(Set<Artifact> declaredDependencies) {
@@ -141,60 +281,186 @@ class AnalyzeClassUsage {
     }
     Map<String, Set<String>> classDependencies = dependencyAnalyzer.analyze(file.toPath(), log);
     if (!classDependencies.isEmpty()) {
-      usedDependencies.put(artifact, classDependencies);
-      for (Map.Entry<String, Set<String>> entry : classDependencies.entrySet()) {
-        resolveClass(log, artifact, entry.getKey(), entry.getValue());
+      usedDependencies.put(artifact, CompletableFuture.completedFuture(classDependencies::get));
+      int artifactId = classGraph.artifactId(artifact);
+      Frontier frontier = new Frontier();
+      for (Map.Entry<String, Set<String>> entry : byKey(log, classDependencies).entrySet()) {
+        int classId = classGraph.id(entry.getKey());
+        if (resolveClass(log, artifactId, classId, entry.getValue())) {
+          frontier.add(classId);
+        }
       }
+      resolveDependentClasses(log, frontier);
     }
   }
 
-  private void resolveClass(
-      Log log, Artifact artifact, String className, Set<String> dependentClassNames) {
-    Artifact prior = resolvedClasses.put(className, artifact);
-    if (prior != null) {
-      if (!prior.equals(artifact)) {
-        log.error("Duplicate artifact for " + className + "; " + prior + " and " + artifact);
+  /**
+   * Group the classes of the working artifact by key. When tracking by package, any package of the
+   * working artifact which is also held by a dependency is split first, so that the classes of the
+   * dependency remain distinct from those of the working artifact.
+   */
+  private Map<String, Set<String>> byKey(Log log, Map<String, Set<String>> classDependencies) {
+    if (!packageGranularity) {
+      return classDependencies;
+    }
+    for (String packageKey : PackageClassAnalyzer.byPackage(classDependencies.keySet()).keySet()) {
+      if (!splitPackages.contains(packageKey)) {
+        int provider = classGraph.provider(classGraph.id(packageKey));
+        if (provider != ClassGraph.NONE) {
+          splitPackage(log, packageKey, provider);
+        }
       }
-    } else {
-      for (String dependentClassName : dependentClassNames) {
-        resolveDependentClass(log, dependentClassName);
+    }
+    Map<String, Set<String>> byKey = new HashMap<>();
+    for (Map.Entry<String, Set<String>> entry : classDependencies.entrySet()) {
+      byKey.computeIfAbsent(key(entry.getKey()), k -> new HashSet<>()).addAll(entry.getValue());
+    }
+    return byKey;
+  }
+
+  /**
+   * Resolve the classes required by each class of the frontier, breadth first. The classes newly
+   * resolved form the next frontier, until no class is newly resolved. The depth of the reference
+   * chains does not grow the stack.
+   *
+   * <p>Each step finds the classes of the frontier's requirements which are not yet resolved, in
+   * order. Those classes are analyzed concurrently, then resolved in the same order, so that the
+   * result is independent of scheduling. Only the analyses run on the executor; the class graph is
+   * updated by the calling thread alone.
+   */
+  private void resolveDependentClasses(Log log, Frontier frontier) {
+    Frontier next = new Frontier();
+    Frontier pending = new Frontier();
+    BitSet claimed = new BitSet();
+    List<CompletableFuture<Set<String>>> analyses = new ArrayList<>();
+    while (frontier.size > 0) {
+      for (int f = 0; f < frontier.size; ++f) {
+        int classId = frontier.ids[f];
+        for (int i = 0, count = classGraph.edgeCount(classId); i < count; ++i) {
+          int dependentId = classGraph.edge(classId, i);
+          int dependent = claimDependentClass(log, dependentId, claimed);
+          if (dependent != ClassGraph.NONE) {
+            pending.add(dependentId);
+            analyses.add(analyzeDependentClass(log, dependent, dependentId));
+          }
+        }
+      }
+
+      for (int p = 0; p < pending.size; ++p) {
+        int dependentId = pending.ids[p];
+        Set<String> dependentClasses = join(analyses.get(p));
+        if (dependentClasses != null
+            && resolveClass(log, classGraph.provider(dependentId), dependentId, dependentClasses)) {
+          next.add(dependentId);
+        }
       }
+
+      claimed.clear();
+      pending.size = 0;
+      analyses.clear();
+      Frontier resolved = frontier;
+      frontier = next;
+      next = resolved;
+      next.size = 0;
     }
   }
 
-  private void resolveDependentClass(Log log, String dependentClassName) {
-    Artifact dependent = findDependency(log, dependentClassName);
-    if (dependent != null) {
-      log.debug("Found " + dependentClassName + " in " + dependent);
-      Map<String, Set<String>> analyzedArtifact =
-          usedDependencies.computeIfAbsent(
-              dependent, da -> {
-                File file = da.getFile();
-                if (file == null) {
-                  logMissingFile(log, da);
-                  return Map.of();
-                }
-                return dependencyAnalyzer.analyze(file.toPath(), log);
-              });
-      Set<String> dependentClasses = analyzedArtifact.get(dependentClassName);
-      if (dependentClasses != null) {
-        resolveClass(log, dependent, dependentClassName, dependentClasses);
+  /**
+   * Resolve a class in an artifact.
+   *
+   * @return true, if the class was not already resolved
+   */
+  private boolean resolveClass(
+      Log log, int artifactId, int classId, Set<String> dependentClassNames) {
+    int prior = classGraph.setResolution(classId, artifactId);
+    if (prior != ClassGraph.NONE) {
+      if (prior != artifactId) {
+        logDuplicate(log, classId, prior, artifactId);
       }
+      return false;
     }
+    classGraph.setEdges(classId, keys(dependentClassNames));
+    return true;
   }
 
-  private Artifact findDependency(Log log, String dependentClassName) {
-    Artifact dependent = classNameToArtifact.get(dependentClassName);
-    if (dependent != null) {
-      return dependent.equals(TRANSITIVE) ? null : dependent;
+  /**
+   * Claim a class required by a resolved class for analysis in this step.
+   *
+   * @return The id of the artifact providing the class, or NONE if the class needs no analysis
+   */
+  private int claimDependentClass(Log log, int dependentId, BitSet claimed) {
+    if (claimed.get(dependentId)) {
+      return ClassGraph.NONE;
+    }
+    int dependent = findDependency(log, dependentId);
+    if (dependent == ClassGraph.NONE) {
+      return ClassGraph.NONE;
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Found " + classGraph.name(dependentId) + " in " + classGraph.artifact(dependent));
     }
+    int prior = classGraph.resolution(dependentId);
+    if (prior == ClassGraph.NONE) {
+      claimed.set(dependentId);
+      return dependent;
+    }
+    // the artifact is used, even though its class was resolved in another
+    usedDependency(log, dependent);
+    if (prior != dependent) {
+      logDuplicate(log, dependentId, prior, dependent);
+    }
+    return ClassGraph.NONE;
+  }
 
-    if (!dependentClassName.startsWith("java.") && !dependentClassName.startsWith("javax.")) {
+  /** The analyzer of a used artifact, opened once whichever thread first needs it. */
+  private CompletableFuture<ClassAnalyzer> usedDependency(Log log, int dependent) {
+    return usedDependencies.computeIfAbsent(
+        classGraph.artifact(dependent),
+        da -> CompletableFuture.supplyAsync(() -> openArtifact(log, da), executor));
+  }
+
+  private CompletableFuture<Set<String>> analyzeDependentClass(
+      Log log, int dependent, int dependentId) {
+    // only the referenced class of the artifact is analyzed
+    String dependentClassName = classGraph.name(dependentId);
+    return usedDependency(log, dependent)
+        .thenApplyAsync(analyzer -> analyzer.analyze(dependentClassName), executor);
+  }
+
+  private void logDuplicate(Log log, int classId, int prior, int artifactId) {
+    logDuplicate(
+        log,
+        classGraph.name(classId),
+        classGraph.artifact(prior),
+        classGraph.artifact(artifactId));
+  }
+
+  private ClassAnalyzer openArtifact(Log log, Artifact artifact) {
+    File file = artifact.getFile();
+    if (file == null) {
+      logMissingFile(log, artifact);
+      return cn -> null;
+    }
+    ClassAnalyzer analyzer = dependencyAnalyzer.open(file.toPath(), log);
+    return packageGranularity
+        ? new PackageClassAnalyzer(analyzer, locationCollector.list(file.toPath(), log))
+        : analyzer;
+  }
+
+  private int findDependency(Log log, int dependentId) {
+    int dependent = classGraph.provider(dependentId);
+    if (dependent != ClassGraph.NONE) {
+      return dependent == transitive ? ClassGraph.NONE : dependent;
+    }
+
+    String dependentClassName = classGraph.name(dependentId);
+    // classes of the platform are expected to have no artifact
+    if (log.isDebugEnabled() && !PlatformPackages.system().contains(dependentClassName)) {
       log.debug("Could not find artifact containing " + dependentClassName);
     }
-    resolvedClasses.put(dependentClassName, TRANSITIVE);
-    classNameToArtifact.put(dependentClassName, TRANSITIVE);
-    return null;
+    classGraph.setResolution(dependentId, transitive);
+    classGraph.setProvider(dependentId, transitive);
+    return ClassGraph.NONE;
   }
 
   /**
@@ -271,6 +537,16 @@ class AnalyzeClassUsage {
     return logCollectionContents(log, "Used undeclared dependencies found:", usedButUndeclared);
   }
 
+  /** Release the resources held open for analysis of the used dependencies */
+  @Override
+  public void close() {
+    for (CompletableFuture<ClassAnalyzer> analyzer : usedDependencies.values()) {
+      if (!analyzer.isCompletedExceptionally()) {
+        join(analyzer).close();
+      }
+    }
+  }
+
   private boolean logCollectionContents(Log log, String message, Set<Artifact> collection) {
     if (collection.isEmpty()) {
       return false;
@@ -282,4 +558,17 @@ class AnalyzeClassUsage {
     }
     return true;
   }
+
+  /** The ids of the classes resolved in one step of the breadth first walk. */
+  private static class Frontier {
+    private int[] ids = new int[64];
+    private int size;
+
+    private void add(int id) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      ids[size++] = id;
+    }
+  }
 }
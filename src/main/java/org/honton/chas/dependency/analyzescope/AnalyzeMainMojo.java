@@ -1,10 +1,7 @@
 package org.honton.chas.dependency.analyzescope;
 
 import java.io.File;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Set;
-import org.apache.maven.artifact.Artifact;
+import java.util.List;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
@@ -41,22 +38,7 @@ public class AnalyzeMainMojo extends AbstractAnalyzeScopeMojo {
   }
 
   @Override
-  Artifact workingArtifact() {
-    return project.getArtifact();
-  }
-
-  @Override
-  Collection<Artifact> impliedArtifacts() {
-    return Collections.singletonList(workingArtifact());
-  }
-
-  @Override
-  Set<String> getDeclaredScopes() {
-    return Collections.singleton(Artifact.SCOPE_COMPILE);
-  }
-
-  @Override
-  Set<String> getClasspathScopes() {
-    return Set.of(Artifact.SCOPE_COMPILE, Artifact.SCOPE_PROVIDED, Artifact.SCOPE_SYSTEM);
+  List<ModuleScope> moduleScopes() {
+    return List.of(ModuleScope.main(project, getLog()));
   }
 }
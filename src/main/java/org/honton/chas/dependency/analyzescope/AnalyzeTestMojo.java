@@ -1,12 +1,7 @@
 package org.honton.chas.dependency.analyzescope;
 
 import java.io.File;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Set;
-import org.apache.maven.artifact.Artifact;
-import org.apache.maven.artifact.DefaultArtifact;
+import java.util.List;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
@@ -32,19 +27,6 @@ public class AnalyzeTestMojo extends AbstractAnalyzeScopeMojo {
       readonly = true)
   private File testClasses;
 
-  private Artifact testArtifact;
-
-  private static Artifact createTestArtifact(Artifact mainArtifact) {
-    return new DefaultArtifact(
-        mainArtifact.getGroupId(),
-        mainArtifact.getArtifactId(),
-        mainArtifact.getVersion(),
-        "test",
-        mainArtifact.getType(),
-        "test",
-        mainArtifact.getArtifactHandler());
-  }
-
   @Override
   boolean skip() {
     if (skip) {
@@ -55,39 +37,11 @@ public class AnalyzeTestMojo extends AbstractAnalyzeScopeMojo {
       getLog().info("No test classes directory");
       return true;
     }
-
-    testArtifact = createTestArtifact(project.getArtifact());
-    testArtifact.setFile(testClasses);
     return false;
   }
 
   @Override
-  Artifact workingArtifact() {
-    return testArtifact;
-  }
-
-  @Override
-  Collection<Artifact> impliedArtifacts() {
-    Artifact mainArtifact = project.getArtifact();
-    File mainClasses= mainArtifact.getFile();
-    if (mainClasses == null || !mainClasses.exists()) {
-      getLog().info("No main classes directory");
-      return Collections.singletonList(testArtifact);
-    }
-    return Arrays.asList(mainArtifact, testArtifact);
-  }
-
-  @Override
-  Set<String> getDeclaredScopes() {
-    return Collections.singleton(Artifact.SCOPE_TEST);
-  }
-
-  @Override
-  Set<String> getClasspathScopes() {
-    return Set.of(
-        Artifact.SCOPE_COMPILE,
-        Artifact.SCOPE_PROVIDED,
-        Artifact.SCOPE_SYSTEM,
-        Artifact.SCOPE_TEST);
+  List<ModuleScope> moduleScopes() {
+    return List.of(ModuleScope.test(project, testClasses, getLog()));
   }
 }
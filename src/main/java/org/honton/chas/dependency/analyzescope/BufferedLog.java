@@ -0,0 +1,120 @@
+package org.honton.chas.dependency.analyzescope;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Holds the messages of a concurrent task, so that they are reported together rather than
+ * interleaved with the messages of other tasks.
+ */
+class BufferedLog implements Log {
+  private final Log delegate;
+  private final List<Runnable> messages;
+
+  /**
+   * Create a buffer.
+   *
+   * @param delegate The log which eventually receives the messages, and decides their levels
+   */
+  BufferedLog(Log delegate) {
+    this.delegate = delegate;
+    messages = new ArrayList<>();
+  }
+
+  private synchronized void add(Runnable message) {
+    messages.add(message);
+  }
+
+  /** Send the messages held to the delegate. */
+  synchronized void replay() {
+    messages.forEach(Runnable::run);
+    messages.clear();
+  }
+
+  @Override
+  public boolean isDebugEnabled() {
+    return delegate.isDebugEnabled();
+  }
+
+  @Override
+  public void debug(CharSequence content) {
+    if (isDebugEnabled()) {
+      add(() -> delegate.debug(content));
+    }
+  }
+
+  @Override
+  public void debug(CharSequence content, Throwable error) {
+    if (isDebugEnabled()) {
+      add(() -> delegate.debug(content, error));
+    }
+  }
+
+  @Override
+  public void debug(Throwable error) {
+    if (isDebugEnabled()) {
+      add(() -> delegate.debug(error));
+    }
+  }
+
+  @Override
+  public boolean isInfoEnabled() {
+    return delegate.isInfoEnabled();
+  }
+
+  @Override
+  public void info(CharSequence content) {
+    add(() -> delegate.info(content));
+  }
+
+  @Override
+  public void info(CharSequence content, Throwable error) {
+    add(() -> delegate.info(content, error));
+  }
+
+  @Override
+  public void info(Throwable error) {
+    add(() -> delegate.info(error));
+  }
+
+  @Override
+  public boolean isWarnEnabled() {
+    return delegate.isWarnEnabled();
+  }
+
+  @Override
+  public void warn(CharSequence content) {
+    add(() -> delegate.warn(content));
+  }
+
+  @Override
+  public void warn(CharSequence content, Throwable error) {
+    add(() -> delegate.warn(content, error));
+  }
+
+  @Override
+  public void warn(Throwable error) {
+    add(() -> delegate.warn(error));
+  }
+
+  @Override
+  public boolean isErrorEnabled() {
+    return delegate.isErrorEnabled();
+  }
+
+  @Override
+  public void error(CharSequence content) {
+    add(() -> delegate.error(content));
+  }
+
+  @Override
+  public void error(CharSequence content, Throwable error) {
+    add(() -> delegate.error(content, error));
+  }
+
+  @Override
+  public void error(Throwable error) {
+    add(() -> delegate.error(error));
+  }
+}
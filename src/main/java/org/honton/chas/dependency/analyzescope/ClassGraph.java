@@ -0,0 +1,233 @@
+package org.honton.chas.dependency.analyzescope;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * The classes known to an analysis, numbered densely from zero. The artifact providing each class,
+ * the artifact each class was resolved in, and the classes each resolved class requires are held
+ * in int arrays indexed by class id. The required classes are appended to a single array, with the
+ * start and length of each class's run, in compressed sparse row form.
+ */
+class ClassGraph {
+  /** The id of an absent class or artifact. */
+  static final int NONE = -1;
+
+  private static final int INITIAL_CAPACITY = 1 << 10;
+
+  // open addressing table of class name hash to class id
+  private int[] slots;
+  private String[] names;
+  private int[] providers;
+  private int[] resolutions;
+  private int[] edgeStarts;
+  private int[] edgeCounts;
+  private int[] edges;
+  private int size;
+  private int edgeSize;
+
+  private final List<Artifact> artifacts;
+  private final Map<Artifact, Integer> artifactIds;
+
+  ClassGraph() {
+    slots = new int[INITIAL_CAPACITY * 2];
+    Arrays.fill(slots, NONE);
+    names = new String[INITIAL_CAPACITY];
+    providers = new int[INITIAL_CAPACITY];
+    resolutions = new int[INITIAL_CAPACITY];
+    edgeStarts = new int[INITIAL_CAPACITY];
+    edgeCounts = new int[INITIAL_CAPACITY];
+    edges = new int[INITIAL_CAPACITY * 4];
+    artifacts = new ArrayList<>();
+    artifactIds = new HashMap<>();
+  }
+
+  private static int spread(int hash) {
+    return hash * 0x9E3779B9;
+  }
+
+  private int slot(String className) {
+    int mask = slots.length - 1;
+    int slot = spread(className.hashCode()) & mask;
+    for (int id; (id = slots[slot]) != NONE; slot = slot + 1 & mask) {
+      if (names[id].equals(className)) {
+        return slot;
+      }
+    }
+    return slot;
+  }
+
+  private void grow() {
+    int capacity = names.length * 2;
+    names = Arrays.copyOf(names, capacity);
+    providers = Arrays.copyOf(providers, capacity);
+    resolutions = Arrays.copyOf(resolutions, capacity);
+    edgeStarts = Arrays.copyOf(edgeStarts, capacity);
+    edgeCounts = Arrays.copyOf(edgeCounts, capacity);
+
+    slots = new int[capacity * 2];
+    Arrays.fill(slots, NONE);
+    for (int id = 0; id < size; ++id) {
+      slots[slot(names[id])] = id;
+    }
+  }
+
+  /**
+   * The id of a class, assigning the next id to a class not yet known.
+   *
+   * @param className The name of the class
+   * @return The id of the class
+   */
+  int id(String className) {
+    int slot = slot(className);
+    int id = slots[slot];
+    if (id != NONE) {
+      return id;
+    }
+    if (size == names.length) {
+      grow();
+      slot = slot(className);
+    }
+    id = size++;
+    slots[slot] = id;
+    names[id] = className;
+    providers[id] = NONE;
+    resolutions[id] = NONE;
+    return id;
+  }
+
+  /**
+   * The name of a class.
+   *
+   * @param id The id of the class
+   * @return The name of the class
+   */
+  String name(int id) {
+    return names[id];
+  }
+
+  /**
+   * The number of classes known.
+   *
+   * @return The number of ids assigned
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * The id of an artifact, assigning the next id to an artifact not yet known.
+   *
+   * @param artifact The artifact
+   * @return The id of the artifact
+   */
+  int artifactId(Artifact artifact) {
+    return artifactIds.computeIfAbsent(
+        artifact,
+        a -> {
+          artifacts.add(a);
+          return artifacts.size() - 1;
+        });
+  }
+
+  /**
+   * The artifact with an id.
+   *
+   * @param artifactId The id of the artifact
+   * @return The artifact
+   */
+  Artifact artifact(int artifactId) {
+    return artifacts.get(artifactId);
+  }
+
+  /**
+   * The artifact providing a class.
+   *
+   * @param id The id of the class
+   * @return The id of the artifact, or NONE if no artifact provides the class
+   */
+  int provider(int id) {
+    return providers[id];
+  }
+
+  /**
+   * Set the artifact providing a class.
+   *
+   * @param id The id of the class
+   * @param artifactId The id of the artifact
+   * @return The id of the artifact previously providing the class, or NONE
+   */
+  int setProvider(int id, int artifactId) {
+    int prior = providers[id];
+    providers[id] = artifactId;
+    return prior;
+  }
+
+  /**
+   * The artifact a class was resolved in.
+   *
+   * @param id The id of the class
+   * @return The id of the artifact, or NONE if the class is not yet resolved
+   */
+  int resolution(int id) {
+    return resolutions[id];
+  }
+
+  /**
+   * Set the artifact a class was resolved in.
+   *
+   * @param id The id of the class
+   * @param artifactId The id of the artifact
+   * @return The id of the artifact the class was previously resolved in, or NONE
+   */
+  int setResolution(int id, int artifactId) {
+    int prior = resolutions[id];
+    resolutions[id] = artifactId;
+    return prior;
+  }
+
+  /**
+   * Set the classes required by a class. The classes required are set once for each class.
+   *
+   * @param id The id of the class
+   * @param classNames The names of the required classes
+   */
+  void setEdges(int id, Collection<String> classNames) {
+    int count = classNames.size();
+    if (edgeSize + count > edges.length) {
+      edges = Arrays.copyOf(edges, Math.max(edges.length * 2, edgeSize + count));
+    }
+    int start = edgeSize;
+    for (String className : classNames) {
+      edges[edgeSize++] = id(className);
+    }
+    edgeStarts[id] = start;
+    edgeCounts[id] = count;
+  }
+
+  /**
+   * The number of classes required by a class.
+   *
+   * @param id The id of the class
+   * @return The number of required classes, or zero if not set
+   */
+  int edgeCount(int id) {
+    return edgeCounts[id];
+  }
+
+  /**
+   * A class required by a class.
+   *
+   * @param id The id of the class
+   * @param index The index of the required class, less than the edge count
+   * @return The id of the required class
+   */
+  int edge(int id, int index) {
+    return edges[edgeStarts[id] + index];
+  }
+}
@@ -0,0 +1,145 @@
+package org.honton.chas.dependency.analyzescope;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+
+/** The classes of one scope of a module, and the dependencies they are checked against. */
+class ModuleScope {
+  private static final Set<String> MAIN_DECLARED = Collections.singleton(Artifact.SCOPE_COMPILE);
+  private static final Set<String> MAIN_CLASSPATH =
+      Set.of(Artifact.SCOPE_COMPILE, Artifact.SCOPE_PROVIDED, Artifact.SCOPE_SYSTEM);
+  private static final Set<String> TEST_DECLARED = Collections.singleton(Artifact.SCOPE_TEST);
+  private static final Set<String> TEST_CLASSPATH =
+      Set.of(
+          Artifact.SCOPE_COMPILE,
+          Artifact.SCOPE_PROVIDED,
+          Artifact.SCOPE_SYSTEM,
+          Artifact.SCOPE_TEST);
+
+  private final MavenProject project;
+  private final Artifact workingArtifact;
+  private final Collection<Artifact> impliedArtifacts;
+  private final Set<String> declaredScopes;
+  private final Set<String> classpathScopes;
+
+  ModuleScope(
+      MavenProject project,
+      Artifact workingArtifact,
+      Collection<Artifact> impliedArtifacts,
+      Set<String> declaredScopes,
+      Set<String> classpathScopes) {
+    this.project = project;
+    this.workingArtifact = workingArtifact;
+    this.impliedArtifacts = impliedArtifacts;
+    this.declaredScopes = declaredScopes;
+    this.classpathScopes = classpathScopes;
+  }
+
+  /**
+   * The main classes of a project.
+   *
+   * @param project The project
+   * @param log The logger for any processing messages
+   * @return The scope checking the main classes against the compile dependencies
+   */
+  static ModuleScope main(MavenProject project, Log log) {
+    Artifact mainArtifact = mainArtifact(project, log);
+    return new ModuleScope(
+        project,
+        mainArtifact,
+        Collections.singletonList(mainArtifact),
+        MAIN_DECLARED,
+        MAIN_CLASSPATH);
+  }
+
+  /**
+   * The test classes of a project.
+   *
+   * @param project The project
+   * @param testClasses The directory of the test classes
+   * @param log The logger for any processing messages
+   * @return The scope checking the test classes against the test dependencies
+   */
+  static ModuleScope test(MavenProject project, File testClasses, Log log) {
+    Artifact mainArtifact = mainArtifact(project, log);
+    Artifact testArtifact = createTestArtifact(mainArtifact);
+    testArtifact.setFile(testClasses);
+
+    Collection<Artifact> impliedArtifacts;
+    File mainClasses = mainArtifact.getFile();
+    if (mainClasses == null || !mainClasses.exists()) {
+      log.info("No main classes directory");
+      impliedArtifacts = Collections.singletonList(testArtifact);
+    } else {
+      impliedArtifacts = Arrays.asList(mainArtifact, testArtifact);
+    }
+    return new ModuleScope(
+        project, testArtifact, impliedArtifacts, TEST_DECLARED, TEST_CLASSPATH);
+  }
+
+  private static Artifact mainArtifact(MavenProject project, Log log) {
+    Artifact artifact = project.getArtifact();
+    if (artifact.getFile() == null) {
+      String outputDirectory = project.getBuild().getOutputDirectory();
+      log.warn("Setting File " + outputDirectory + " for Artifact " + artifact);
+      artifact.setFile(new File(outputDirectory));
+    }
+    return artifact;
+  }
+
+  private static Artifact createTestArtifact(Artifact mainArtifact) {
+    return new DefaultArtifact(
+        mainArtifact.getGroupId(),
+        mainArtifact.getArtifactId(),
+        mainArtifact.getVersion(),
+        "test",
+        mainArtifact.getType(),
+        "test",
+        mainArtifact.getArtifactHandler());
+  }
+
+  /** The artifact whose classes are checked. */
+  Artifact workingArtifact() {
+    return workingArtifact;
+  }
+
+  /** The artifacts whose classes are available without declaration. */
+  Collection<Artifact> impliedArtifacts() {
+    return impliedArtifacts;
+  }
+
+  /** The dependencies which should be used by the classes. */
+  Set<Artifact> declaredDependencies() {
+    return getDependencyArtifactsByScope(declaredScopes);
+  }
+
+  /** The dependencies which may be used by the classes. */
+  Set<Artifact> classpathDependencies() {
+    Set<Artifact> classpathDependencies = getDependencyArtifactsByScope(classpathScopes);
+    classpathDependencies.add(project.getArtifact());
+    return classpathDependencies;
+  }
+
+  private Set<Artifact> getDependencyArtifactsByScope(Collection<String> acceptableScopes) {
+    Set<Artifact> scopedArtifacts = new HashSet<>();
+    for (Artifact artifact : project.getDependencyArtifacts()) {
+      if (acceptableScopes.contains(artifact.getScope())) {
+        scopedArtifacts.add(artifact);
+      }
+    }
+    return scopedArtifacts;
+  }
+
+  @Override
+  public String toString() {
+    return workingArtifact.getId();
+  }
+}
@@ -0,0 +1,82 @@
+package org.honton.chas.dependency.analyzescope;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.honton.chas.analyzer.api.ClassAnalyzer;
+
+/**
+ * Analyze the packages of an artifact, as well as its individual classes. A package is named by its
+ * package key, and requires the union of the classes required by each of its classes.
+ */
+class PackageClassAnalyzer implements ClassAnalyzer {
+  private static final String PACKAGE_SUFFIX = "*";
+
+  private final ClassAnalyzer delegate;
+  // package key to the classes of the package
+  private final Map<String, List<String>> packages;
+
+  /**
+   * Create a package analyzer.
+   *
+   * @param delegate The analyzer of the individual classes
+   * @param classNames The classes of the artifact
+   */
+  PackageClassAnalyzer(ClassAnalyzer delegate, Collection<String> classNames) {
+    this.delegate = delegate;
+    packages = byPackage(classNames);
+  }
+
+  /**
+   * The key of the package holding a class. The key cannot be mistaken for the name of a class.
+   *
+   * @param className The name of the class
+   * @return The package name followed by <code>.*</code>, or <code>*</code> for the unnamed package
+   */
+  static String packageKey(String className) {
+    int lastDot = className.lastIndexOf('.');
+    return lastDot < 0 ? PACKAGE_SUFFIX : className.substring(0, lastDot + 1) + PACKAGE_SUFFIX;
+  }
+
+  /**
+   * Group classes by package.
+   *
+   * @param classNames The names of the classes
+   * @return The map of package key to the classes of the package
+   */
+  static Map<String, List<String>> byPackage(Collection<String> classNames) {
+    Map<String, List<String>> packages = new HashMap<>();
+    for (String className : classNames) {
+      packages.computeIfAbsent(packageKey(className), pk -> new ArrayList<>()).add(className);
+    }
+    return packages;
+  }
+
+  @Override
+  public Set<String> analyze(String className) {
+    if (!className.endsWith(PACKAGE_SUFFIX)) {
+      return delegate.analyze(className);
+    }
+    List<String> classNames = packages.get(className);
+    if (classNames == null) {
+      return null;
+    }
+    Set<String> dependencies = new HashSet<>();
+    for (String name : classNames) {
+      Set<String> classDependencies = delegate.analyze(name);
+      if (classDependencies != null) {
+        dependencies.addAll(classDependencies);
+      }
+    }
+    return dependencies;
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+}
@@ -0,0 +1,57 @@
+package org.honton.chas.dependency.analyzescope;
+
+import java.lang.module.ModuleFinder;
+import java.lang.module.ModuleReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The packages of the modules of the Java platform running the build. The packages are read from
+ * the module descriptors of the runtime image, without listing its classes, once per JVM. A class
+ * of these packages is provided by the platform, and needs no dependency.
+ */
+final class PlatformPackages {
+  private static final PlatformPackages SYSTEM = new PlatformPackages(ModuleFinder.ofSystem());
+
+  // package name to the name of the module holding it
+  private final Map<String, String> modules = new HashMap<>();
+
+  PlatformPackages(ModuleFinder moduleFinder) {
+    for (ModuleReference reference : moduleFinder.findAll()) {
+      String module = reference.descriptor().name();
+      for (String packageName : reference.descriptor().packages()) {
+        modules.put(packageName, module);
+      }
+    }
+  }
+
+  /**
+   * The packages of the modules of the runtime image.
+   *
+   * @return The platform packages
+   */
+  static PlatformPackages system() {
+    return SYSTEM;
+  }
+
+  /**
+   * The module holding the package of a class.
+   *
+   * @param className The name of the class
+   * @return The name of the module, or null if the package is not in the platform
+   */
+  String module(String className) {
+    int lastDot = className.lastIndexOf('.');
+    return lastDot < 0 ? null : modules.get(className.substring(0, lastDot));
+  }
+
+  /**
+   * Whether a class is in a package of the platform.
+   *
+   * @param className The name of the class
+   * @return true, if a module of the platform holds the package of the class
+   */
+  boolean contains(String className) {
+    return module(className) != null;
+  }
+}
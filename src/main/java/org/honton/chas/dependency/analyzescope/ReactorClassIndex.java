@@ -0,0 +1,91 @@
+package org.honton.chas.dependency.analyzescope;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import lombok.Value;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.logging.Log;
+import org.honton.chas.analyzer.api.LocationCollector;
+
+/**
+ * The classes of every location used by the modules of a reactor. Each location is listed once,
+ * concurrently, no matter how many modules use it. All locations must be indexed before the
+ * listings are read. The messages of each listing are held until replayed, in the order the
+ * locations were indexed.
+ */
+class ReactorClassIndex implements LocationCollector {
+  private final LocationCollector delegate;
+  private final Map<Path, Listing> listings;
+
+  /**
+   * Create an index of locations.
+   *
+   * @param delegate The collector which lists each location
+   */
+  ReactorClassIndex(LocationCollector delegate) {
+    this.delegate = delegate;
+    listings = new LinkedHashMap<>();
+  }
+
+  /**
+   * Start listing the classes of artifacts not already indexed.
+   *
+   * @param log The logger for any processing messages
+   * @param artifacts The artifacts to index
+   * @param executor The executor which lists the locations
+   */
+  void index(Log log, Collection<Artifact> artifacts, Executor executor) {
+    for (Artifact artifact : artifacts) {
+      File file = artifact.getFile();
+      if (file != null) {
+        listings.computeIfAbsent(
+            file.toPath(),
+            location -> {
+              BufferedLog listingLog = new BufferedLog(log);
+              return new Listing(
+                  CompletableFuture.supplyAsync(
+                      () -> delegate.list(location, listingLog), executor),
+                  listingLog);
+            });
+      }
+    }
+  }
+
+  /**
+   * Report the messages of each listing, in the order the locations were indexed. Waits for each
+   * listing to complete; a failed listing is reported when it is read.
+   */
+  void replay() {
+    for (Listing listing : listings.values()) {
+      listing.getClasses().handle((classes, failure) -> classes).join();
+      listing.getLog().replay();
+    }
+  }
+
+  /**
+   * The number of locations indexed.
+   *
+   * @return The number of locations
+   */
+  int size() {
+    return listings.size();
+  }
+
+  @Override
+  public Set<String> list(Path location, Log log) {
+    Listing listing = listings.get(location);
+    return listing != null ? listing.getClasses().join() : delegate.list(location, log);
+  }
+
+  @Value
+  private static class Listing {
+    CompletableFuture<Set<String>> classes;
+    BufferedLog log;
+  }
+}
@@ -20,13 +20,25 @@ package org.honton.chas.analyzer.api;
  */
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.jar.Attributes;
 import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
 import org.honton.chas.analyzer.asm.visitors.CollectorClassFileVisitor;
+import org.honton.chas.analyzer.spi.ClassFileVisitor;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -101,6 +113,178 @@ class ClassFileVisitorUtilsTest {
     Assertions.assertEquals(Set.of(), visitor.getClasses());
   }
 
+  @Test
+  void testAcceptDirInParallel() throws IOException {
+    Map<String, String> expected = new HashMap<>();
+    for (int p = 0; p < 10; ++p) {
+      Path dir = Files.createDirectories(tempDir.resolve(Path.of("p" + p)));
+      for (int c = 0; c < 100; ++c) {
+        writeToFile(dir, "C" + c + ".class", "class p" + p + ".C" + c);
+        expected.put("p" + p + ".C" + c, "class p" + p + ".C" + c);
+      }
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Assertions.assertEquals(expected, asStrings(acceptBuffers(tempDir, pool)));
+    } finally {
+      pool.shutdown();
+    }
+    // when no parsing task runs, the walking thread parses every class file
+    Assertions.assertEquals(expected, asStrings(acceptBuffers(tempDir, task -> {})));
+  }
+
+  @Test
+  void testAcceptLargeJarInParallel() throws IOException {
+    Map<String, String> expected = new HashMap<>();
+    Path file = tempDir.resolve("test.jar");
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(file))) {
+      for (int c = 0; c < 3000; ++c) {
+        addZipEntry(out, "p/C" + c + ".class", "class p.C" + c);
+        expected.put("p.C" + c, "class p.C" + c);
+      }
+      addZipEntry(out, "p/C.jpg", "jpeg p.C");
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Assertions.assertEquals(expected, asStrings(acceptBuffers(file, pool)));
+    } finally {
+      pool.shutdown();
+    }
+    // when no parsing task runs, the calling thread parses every range
+    Assertions.assertEquals(expected, asStrings(acceptBuffers(file, task -> {})));
+  }
+
+  @Test
+  void testListJar() throws IOException {
+    Path file = tempDir.resolve("test.jar");
+
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(file))) {
+      addZipEntry(out, "a/b/c.class", "class a.b.c");
+      addZipEntry(out, "a/b/package-info.class", "package a.b");
+      addZipEntry(out, "x/y/z.jpg", "jpeg x.y.z");
+    }
+
+    ClassFileVisitorUtils.list(file, visitor::visitClassName, this::handler);
+
+    Assertions.assertEquals(Set.of("a.b.c"), visitor.getClasses());
+  }
+
+  @Test
+  void testListDir() throws IOException {
+    Path abDir = Files.createDirectories(tempDir.resolve(Path.of("a", "b")));
+    writeToFile(abDir, "c.class", "class a.b.c");
+    writeToFile(abDir, "c.jpg", "jpeg a.b.c");
+
+    ClassFileVisitorUtils.list(tempDir, visitor::visitClassName, this::handler);
+
+    Assertions.assertEquals(Set.of("a.b.c"), visitor.getClasses());
+  }
+
+  @Test
+  void testAcceptBuffers() throws IOException {
+    byte[] large = new byte[512 * 1024];
+    Arrays.fill(large, (byte) 'l');
+    Path abDir = Files.createDirectories(tempDir.resolve(Path.of("a", "b")));
+    writeToFile(abDir, "c.class", "class a.b.c");
+    Files.write(abDir.resolve("large.class"), large);
+
+    Map<String, byte[]> contents = acceptBuffers(tempDir);
+    Assertions.assertEquals(
+        "class a.b.c", new String(contents.get("a.b.c"), StandardCharsets.UTF_8));
+    Assertions.assertArrayEquals(large, contents.get("a.b.large"));
+
+    Path file = Files.createDirectories(tempDir.resolve("jar")).resolve("test.jar");
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(file))) {
+      addZipEntry(out, "a/b/large.class", new String(large, StandardCharsets.UTF_8));
+      addZipEntry(out, "x/y/z.class", "class x.y.z");
+    }
+
+    contents = acceptBuffers(file);
+    Assertions.assertArrayEquals(large, contents.get("a.b.large"));
+    Assertions.assertEquals(
+        "class x.y.z", new String(contents.get("x.y.z"), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void testMultiReleaseJar() throws IOException {
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().put(Attributes.Name.MULTI_RELEASE, "true");
+    Path file = tempDir.resolve("test.jar");
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(file), manifest)) {
+      addZipEntry(out, "a/b/c.class", "base a.b.c");
+      addZipEntry(out, "META-INF/versions/11/a/b/c.class", "11 a.b.c");
+      addZipEntry(out, "META-INF/versions/17/x/y/z.class", "17 x.y.z");
+    }
+
+    Set<String> classNames = new HashSet<>();
+    ClassFileVisitorUtils.list(file, classNames::add, this::handler);
+    Assertions.assertEquals(Set.of("a.b.c"), classNames);
+    classNames.clear();
+    ClassFileVisitorUtils.list(file, 17, classNames::add, this::handler);
+    Assertions.assertEquals(Set.of("a.b.c", "x.y.z"), classNames);
+
+    Assertions.assertEquals(Map.of("a.b.c", "base a.b.c"), asStrings(acceptBuffers(file, 8)));
+    Assertions.assertEquals(Map.of("a.b.c", "11 a.b.c"), asStrings(acceptBuffers(file, 11)));
+    Assertions.assertEquals(
+        Map.of("a.b.c", "11 a.b.c", "x.y.z", "17 x.y.z"), asStrings(acceptBuffers(file, 17)));
+
+    Map<String, byte[]> contents = new HashMap<>();
+    try (JarClassFiles classFiles = new JarClassFiles(file, 11)) {
+      Assertions.assertTrue(classFiles.accept("a.b.c", cn -> bufferVisitor(contents)));
+      Assertions.assertFalse(classFiles.accept("x.y.z", cn -> bufferVisitor(contents)));
+    }
+    Assertions.assertEquals(Map.of("a.b.c", "11 a.b.c"), asStrings(contents));
+  }
+
+  private static Map<String, String> asStrings(Map<String, byte[]> contents) {
+    Map<String, String> strings = new HashMap<>();
+    contents.forEach((cn, bytes) -> strings.put(cn, new String(bytes, StandardCharsets.UTF_8)));
+    return strings;
+  }
+
+  private Map<String, byte[]> acceptBuffers(Path path) {
+    return acceptBuffers(path, ClassFileVisitorUtils.BASE_RELEASE);
+  }
+
+  private Map<String, byte[]> acceptBuffers(Path path, int release) {
+    Map<String, byte[]> contents = new HashMap<>();
+    ClassFileVisitor bufferVisitor = bufferVisitor(contents);
+    ClassFileVisitorUtils.accept(path, release, cn -> bufferVisitor, this::handler);
+    return contents;
+  }
+
+  private Map<String, byte[]> acceptBuffers(Path path, Executor executor) {
+    Map<String, byte[]> contents = new ConcurrentHashMap<>();
+    ClassFileVisitorUtils.accept(
+        path,
+        ClassFileVisitorUtils.BASE_RELEASE,
+        cn -> bufferVisitor(contents),
+        this::handler,
+        executor,
+        4);
+    return contents;
+  }
+
+  private static ClassFileVisitor bufferVisitor(Map<String, byte[]> contents) {
+    return new ClassFileVisitor() {
+      @Override
+      public void visitClass(String className, InputStream in) {
+        Assertions.fail(className);
+      }
+
+      @Override
+      public void visitClass(String className, ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        contents.put(className, bytes);
+      }
+    };
+  }
+
+
   private void writeToFile(Path parent, String file, String data) throws IOException {
     Files.write(parent.resolve(file), data.getBytes(StandardCharsets.UTF_8));
   }
@@ -111,4 +295,15 @@ class ClassFileVisitorUtilsTest {
     byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
     out.write(bytes, 0, bytes.length);
   }
+
+  @Test
+  void testLargeClassFileReadOntoHeap() throws IOException {
+    byte[] bytes = new byte[1024 * 1024];
+    Arrays.fill(bytes, (byte) 7);
+    Path file = Files.write(tempDir.resolve("Large.class"), bytes);
+
+    ByteBuffer buffer = new ClassFileBuffer().read(file);
+    Assertions.assertFalse(buffer.isDirect());
+    Assertions.assertEquals(ByteBuffer.wrap(bytes), buffer);
+  }
 }
@@ -19,32 +19,129 @@ package org.honton.chas.analyzer.asm;
  * under the License.
  */
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import org.apache.maven.plugin.logging.Log;
+import org.honton.chas.analyzer.api.AnalysisMode;
+import org.honton.chas.analyzer.api.ClassAnalyzer;
+import org.honton.chas.analyzer.api.ClassContentIndex;
+import org.honton.chas.analyzer.api.ClassFileVisitorUtils;
 import org.honton.chas.analyzer.api.DependencyAnalyzer;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 
 class AsmDependencyAnalyzerTest {
   private final DependencyAnalyzer analyzer = new AsmDependencyAnalyzer();
 
   @Mock Log log;
+  @TempDir Path tempDir;
 
-  @Test
-  void test() throws URISyntaxException {
+  private Path asmJar() throws URISyntaxException {
     URL jarUrl = getClass().getResource("/org/objectweb/asm/ClassReader.class");
     Assertions.assertNotNull(jarUrl);
     String schemeSpecificPart = jarUrl.toURI().getSchemeSpecificPart();
     String jarLocation = schemeSpecificPart.substring(0, schemeSpecificPart.indexOf('!'));
-    Path filePath = Paths.get(new URI(jarLocation));
-    Map<String, Set<String>> result = analyzer.analyze(filePath, log);
+    return Paths.get(new URI(jarLocation));
+  }
+
+  @Test
+  void test() throws URISyntaxException {
+    Map<String, Set<String>> result = analyzer.analyze(asmJar(), log);
     Assertions.assertFalse(result.isEmpty());
   }
+
+  @Test
+  void testOpen() throws URISyntaxException {
+    Path filePath = asmJar();
+    Map<String, Set<String>> result = analyzer.analyze(filePath, log);
+    try (ClassAnalyzer classAnalyzer = analyzer.open(filePath, log)) {
+      for (String className : List.of("org.objectweb.asm.ClassReader", "org.objectweb.asm.Frame")) {
+        Assertions.assertEquals(result.get(className), classAnalyzer.analyze(className));
+      }
+      Assertions.assertNull(classAnalyzer.analyze("org.objectweb.asm.NoSuchClass"));
+    }
+  }
+
+  @Test
+  void testAnalyzeClassPaths() throws URISyntaxException {
+    Path testClasses = Paths.get(getClass().getResource("/").toURI());
+    String className = getClass().getName();
+    Map<String, Set<String>> result =
+        analyzer.analyze(testClasses, List.of(className.replace('.', '/') + ".class"), log);
+    Assertions.assertEquals(Set.of(className), result.keySet());
+    Assertions.assertEquals(
+        analyzer.analyze(testClasses, log).get(className), result.get(className));
+  }
+
+  @Test
+  void testOpenWithContentIndex() throws URISyntaxException, IOException {
+    Map<String, Set<String>> contents = new ConcurrentHashMap<>();
+    ClassContentIndex contentIndex =
+        new ClassContentIndex() {
+          @Override
+          public Set<String> get(String path, long crc, long size) {
+            return contents.get(path + crc + size);
+          }
+
+          @Override
+          public void put(String path, long crc, long size, Set<String> classes) {
+            Assertions.assertNull(contents.put(path + crc + size, classes));
+          }
+        };
+    DependencyAnalyzer contentAnalyzer =
+        new AsmDependencyAnalyzer(
+            AnalysisMode.FULL,
+            ClassFileVisitorUtils.BASE_RELEASE,
+            ForkJoinPool.commonPool(),
+            1,
+            contentIndex);
+    // the same jar under other coordinates
+    Path relocated = Files.copy(asmJar(), tempDir.resolve("relocated.jar"));
+    String className = "org.objectweb.asm.ClassReader";
+    Set<String> expected = analyzer.analyze(asmJar(), log).get(className);
+
+    try (ClassAnalyzer classAnalyzer = contentAnalyzer.open(asmJar(), log)) {
+      Assertions.assertEquals(expected, classAnalyzer.analyze(className));
+    }
+    int analyzed = contents.size();
+    Assertions.assertTrue(analyzed > 0);
+    try (ClassAnalyzer classAnalyzer = contentAnalyzer.open(relocated, log)) {
+      Assertions.assertEquals(expected, classAnalyzer.analyze(className));
+      Assertions.assertNull(classAnalyzer.analyze("org.objectweb.asm.NoSuchClass"));
+    }
+    Assertions.assertEquals(analyzed, contents.size());
+  }
+
+  @Test
+  void testOpenDirectoryInDependencyMode() throws URISyntaxException {
+    Path testClasses = Paths.get(getClass().getResource("/").toURI());
+    String className = "org.honton.chas.analyzer.asm.visitors.testcases.ApiCases";
+    DependencyAnalyzer apiAnalyzer =
+        new AsmDependencyAnalyzer(
+            AnalysisMode.FULL,
+            AnalysisMode.API,
+            ClassFileVisitorUtils.BASE_RELEASE,
+            ForkJoinPool.commonPool(),
+            1,
+            ClassContentIndex.NONE);
+    Set<String> api =
+        new AsmDependencyAnalyzer(AnalysisMode.API).analyze(testClasses, log).get(className);
+    Assertions.assertNotEquals(analyzer.analyze(testClasses, log).get(className), api);
+
+    try (ClassAnalyzer classAnalyzer = apiAnalyzer.open(testClasses, log)) {
+      Assertions.assertEquals(api, classAnalyzer.analyze(className));
+    }
+  }
 }
@@ -76,9 +76,9 @@ class AsmLocationCollectorTest {
   @Test
   void testAnalyzeBadJar() throws IOException {
     // to reproduce MDEP-143
-    // corrupt the jar file by altering its contents
+    // corrupt the jar file by altering its end of central directory record
     byte[] ba = Files.readAllBytes(path);
-    ba[50] = 1;
+    ba[ba.length - 22] = 1;
     Files.write(path, ba);
     LocationCollector analyzer = new AsmLocationCollector();
     analyzer.list(path, log);
@@ -88,6 +88,18 @@ class AsmLocationCollectorTest {
     Assertions.assertTrue(messageCaptor.getValue().startsWith("Could not list "));
   }
 
+  @Test
+  void testAnalyzeDoesNotReadEntries() throws IOException {
+    // corrupt the compressed contents of the first entry; the central directory is intact
+    byte[] ba = Files.readAllBytes(path);
+    ba[50] = 1;
+    Files.write(path, ba);
+    LocationCollector analyzer = new AsmLocationCollector();
+
+    Assertions.assertEquals(Set.of("a.b.c", "x.y.z"), analyzer.list(path, log));
+    Mockito.verifyNoInteractions(log);
+  }
+
   private void addZipEntry(JarOutputStream out, String fileName, String content)
       throws IOException {
     out.putNextEntry(new ZipEntry(fileName));
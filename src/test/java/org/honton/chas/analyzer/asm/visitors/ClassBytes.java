@@ -0,0 +1,75 @@
+package org.honton.chas.analyzer.asm.visitors;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import org.codehaus.plexus.util.IOUtil;
+
+/** Class file bytes used as analysis samples. */
+final class ClassBytes {
+  private ClassBytes() {}
+
+  /**
+   * Find the jar from which a class was loaded.
+   *
+   * @param type A class loaded from a jar
+   * @return The location of the jar
+   */
+  static Path jarOf(Class<?> type) {
+    URL url = type.getResource('/' + type.getName().replace('.', '/') + ".class");
+    try {
+      String schemeSpecificPart = url.toURI().getSchemeSpecificPart();
+      return Paths.get(new URI(schemeSpecificPart.substring(0, schemeSpecificPart.indexOf('!'))));
+    } catch (URISyntaxException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  /**
+   * Read the bytes of a class.
+   *
+   * @param type The class to read
+   * @return The class file bytes
+   */
+  static byte[] of(Class<?> type) {
+    String path = '/' + type.getName().replace('.', '/') + ".class";
+    try (InputStream is = type.getResourceAsStream(path)) {
+      return IOUtil.toByteArray(is);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Read the bytes of all classes in a jar.
+   *
+   * @param jar The jar to read
+   * @return The map of class name to class file bytes
+   */
+  static Map<String, byte[]> ofJar(Path jar) {
+    Map<String, byte[]> classes = new LinkedHashMap<>();
+    try (JarInputStream in = new JarInputStream(Files.newInputStream(jar))) {
+      JarEntry entry;
+      while ((entry = in.getNextJarEntry()) != null) {
+        String name = entry.getName();
+        if (name.endsWith(".class") && name.indexOf('-') == -1) {
+          String className = name.substring(0, name.length() - ".class".length());
+          classes.put(className.replace('/', '.'), IOUtil.toByteArray(in));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return classes;
+  }
+}
@@ -19,6 +19,7 @@ package org.honton.chas.analyzer.asm.visitors;
  * under the License.
  */
 
+import java.io.InputStream;
 import java.util.Set;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -34,8 +35,8 @@ class CollectorClassFileVisitorTest {
 
   @Test
   void testVisitClass() {
-    visitor.visitClass("a.b.c", null);
-    visitor.visitClass("x.y.z", null);
+    visitor.visitClass("a.b.c", (InputStream) null);
+    visitor.visitClass("x.y.z", (InputStream) null);
     Assertions.assertEquals(Set.of("a.b.c", "x.y.z"), visitor.getClasses());
   }
 }
@@ -0,0 +1,102 @@
+package org.honton.chas.analyzer.asm.visitors;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import org.honton.chas.analyzer.asm.visitors.testcases.ArrayCases;
+import org.honton.chas.analyzer.asm.visitors.testcases.MethodHandleCases;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+class ConstantPoolParserTest {
+
+  private static Map<String, byte[]> samples() {
+    Map<String, byte[]> classes = ClassBytes.ofJar(ClassBytes.jarOf(ClassReader.class));
+    classes.put(ArrayCases.class.getName(), ClassBytes.of(ArrayCases.class));
+    classes.put(MethodHandleCases.class.getName(), ClassBytes.of(MethodHandleCases.class));
+    return classes;
+  }
+
+  @Test
+  void testMatchesLegacy() {
+    samples()
+        .forEach(
+            (className, byteCode) -> {
+              Assertions.assertEquals(
+                  LegacyConstantPoolParser.getConstantPoolClassReferences(byteCode),
+                  ConstantPoolParser.getConstantPoolClassReferences(byteCode),
+                  className);
+              Assertions.assertEquals(
+                  LegacyConstantPoolParser.getConstantPoolTypeReferences(ByteBuffer.wrap(byteCode)),
+                  ConstantPoolParser.getConstantPoolTypeReferences(ByteBuffer.wrap(byteCode)),
+                  className);
+            });
+  }
+
+  @Test
+  void testPositionUnchanged() {
+    byte[] byteCode = ClassBytes.of(ArrayCases.class);
+    ByteBuffer buffer = ByteBuffer.allocate(byteCode.length + 3);
+    buffer.position(3);
+    buffer.put(byteCode).position(3);
+
+    Assertions.assertEquals(
+        ConstantPoolParser.getConstantPoolClassReferences(byteCode),
+        ConstantPoolParser.parseConstantPoolClassReferences(buffer));
+    Assertions.assertEquals(3, buffer.position());
+  }
+
+  @Test
+  void testNamesInterned() {
+    byte[] byteCode = ClassBytes.of(ArrayCases.class);
+    Set<String> first = ConstantPoolParser.getConstantPoolClassReferences(byteCode);
+    Set<String> second = ConstantPoolParser.getConstantPoolClassReferences(byteCode.clone());
+
+    Assertions.assertFalse(first.isEmpty());
+    for (String name : first) {
+      Assertions.assertSame(
+          name, second.stream().filter(name::equals).findFirst().orElseThrow(), name);
+    }
+  }
+
+  @Test
+  void testLongDescriptorOnFreshThread() throws InterruptedException {
+    // a descriptor longer than the initial scratch characters of the thread
+    StringBuilder descriptor = new StringBuilder("(");
+    for (int i = 0; i < 40; ++i) {
+      descriptor.append("Ljava/util/List;");
+    }
+    descriptor.append("Lcom/example/Last;)V");
+    ClassWriter writer = new ClassWriter(0);
+    writer.visit(
+        Opcodes.V11, Opcodes.ACC_PUBLIC, "com/example/Long", null, "java/lang/Object", null);
+    writer
+        .visitMethod(
+            Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "m", descriptor.toString(), null, null)
+        .visitEnd();
+    writer.visitEnd();
+    byte[] byteCode = writer.toByteArray();
+
+    AtomicReference<Object> result = new AtomicReference<>();
+    Thread thread =
+        new Thread(
+            () -> {
+              try {
+                result.set(
+                    ConstantPoolParser.getConstantPoolTypeReferences(ByteBuffer.wrap(byteCode)));
+              } catch (RuntimeException runtimeException) {
+                result.set(runtimeException);
+              }
+            });
+    thread.start();
+    thread.join();
+
+    Assertions.assertEquals(
+        Set.of("java/lang/Object", "java/util/List", "com/example/Long", "com/example/Last"),
+        result.get());
+  }
+}
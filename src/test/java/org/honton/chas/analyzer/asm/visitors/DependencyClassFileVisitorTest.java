@@ -0,0 +1,129 @@
+package org.honton.chas.analyzer.asm.visitors;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.honton.chas.analyzer.api.AnalysisMode;
+import org.honton.chas.analyzer.asm.visitors.testcases.ApiCases;
+import org.honton.chas.analyzer.asm.visitors.testcases.ArrayCases;
+import org.honton.chas.analyzer.asm.visitors.testcases.InnerClassCase;
+import org.honton.chas.analyzer.asm.visitors.testcases.LocalVariableCases;
+import org.honton.chas.analyzer.asm.visitors.testcases.MethodHandleCases;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+
+class DependencyClassFileVisitorTest {
+
+  private static Set<String> getDependencies(String className, byte[] byteCode) {
+    return getDependencies(className, byteCode, AnalysisMode.FULL);
+  }
+
+  private static Set<String> getDependencies(
+      String className, byte[] byteCode, AnalysisMode analysisMode) {
+    DependencyClassFileVisitor visitor =
+        new DependencyClassFileVisitor(new HashSet<>(), analysisMode);
+    visitor.visitClass(className, new ByteArrayInputStream(byteCode));
+    return visitor.getDependencies();
+  }
+
+  private static void assertSameAsTwoPass(String className, byte[] byteCode) {
+    Assertions.assertEquals(
+        TwoPassClassParser.getDependencies(byteCode),
+        getDependencies(className, byteCode),
+        className);
+  }
+
+  @Test
+  void testCasesMatchTwoPass() {
+    for (Class<?> type :
+        new Class<?>[] {
+          ArrayCases.class,
+          InnerClassCase.class,
+          LocalVariableCases.class,
+          MethodHandleCases.class,
+          DependencyVisitorTest.class,
+          DependencyClassFileVisitor.class
+        }) {
+      assertSameAsTwoPass(type.getName(), ClassBytes.of(type));
+    }
+  }
+
+  @Test
+  void testLocalVariables() {
+    Set<String> dependencies =
+        getDependencies(
+            LocalVariableCases.class.getName(), ClassBytes.of(LocalVariableCases.class));
+    for (String expected :
+        new String[] {
+          "java.io.Serializable",
+          "java.util.concurrent.atomic.AtomicReference",
+          "java.util.zip.CRC32",
+          "java.lang.annotation.ElementType",
+          "java.lang.annotation.Retention",
+          "java.lang.annotation.RetentionPolicy",
+          "org.honton.chas.analyzer.asm.visitors.testcases.TypeUseMarker"
+        }) {
+      Assertions.assertTrue(dependencies.contains(expected), expected);
+    }
+  }
+
+  @Test
+  void testApi() {
+    Set<String> dependencies =
+        getDependencies(ApiCases.class.getName(), ClassBytes.of(ApiCases.class), AnalysisMode.API);
+    Assertions.assertEquals(
+        Set.of(
+            "java.lang.Object",
+            "java.lang.String",
+            "java.lang.Deprecated",
+            "java.io.Serializable",
+            "java.util.List",
+            "java.util.function.Supplier",
+            "java.util.zip.CRC32"),
+        dependencies);
+  }
+
+  @Test
+  void testApiFindsOnlyFullDependencies() {
+    Map<String, byte[]> classes = ClassBytes.ofJar(ClassBytes.jarOf(ClassReader.class));
+    classes.forEach(
+        (className, byteCode) ->
+            Assertions.assertTrue(
+                getDependencies(className, byteCode)
+                    .containsAll(getDependencies(className, byteCode, AnalysisMode.API)),
+                className));
+  }
+
+  @Test
+  void testFastFindsFullDependencies() {
+    Map<String, byte[]> classes = ClassBytes.ofJar(ClassBytes.jarOf(ClassReader.class));
+    classes.put(ArrayCases.class.getName(), ClassBytes.of(ArrayCases.class));
+    classes.put(DependencyVisitorTest.class.getName(), ClassBytes.of(DependencyVisitorTest.class));
+    classes.forEach(
+        (className, byteCode) -> {
+          Set<String> fast = getDependencies(className, byteCode, AnalysisMode.FAST);
+          for (String dependency : getDependencies(className, byteCode)) {
+            // inner class simple names from signatures are not in a package
+            if (dependency.indexOf('.') != -1) {
+              Assertions.assertTrue(fast.contains(dependency), className + " uses " + dependency);
+            }
+          }
+        });
+  }
+
+  @Test
+  void testFastSkipsInvalidSignatures() {
+    byte[] byteCode = ClassBytes.of(MethodHandleCases.class);
+    Set<String> fast = getDependencies("MethodHandleCases", byteCode, AnalysisMode.FAST);
+    fast.forEach(d -> Assertions.assertFalse(d.startsWith("(") || d.indexOf(';') != -1, d));
+  }
+
+  @Test
+  void testJarMatchesTwoPass() {
+    Map<String, byte[]> classes = ClassBytes.ofJar(ClassBytes.jarOf(ClassReader.class));
+    Assertions.assertFalse(classes.isEmpty());
+    classes.forEach(DependencyClassFileVisitorTest::assertSameAsTwoPass);
+  }
+}
@@ -0,0 +1,32 @@
+package org.honton.chas.analyzer.asm.visitors;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class NameTableTest {
+
+  private final NameTable nameTable = new NameTable();
+
+  @Test
+  void testInternChars() {
+    char[] chars = "java/lang/Object;".toCharArray();
+    String name = nameTable.intern(chars, chars.length - 1);
+
+    Assertions.assertEquals("java/lang/Object", name);
+    Assertions.assertSame(name, nameTable.intern(chars, chars.length - 1));
+    Assertions.assertSame(name, nameTable.intern(new String("java/lang/Object")));
+  }
+
+  @Test
+  void testInternAfterGrowth() {
+    List<String> names = new ArrayList<>();
+    for (int i = 0; i < 10_000; ++i) {
+      names.add(nameTable.intern("a/b/C" + i));
+    }
+    for (int i = 0; i < names.size(); ++i) {
+      Assertions.assertSame(names.get(i), nameTable.intern("a/b/C" + i));
+    }
+  }
+}
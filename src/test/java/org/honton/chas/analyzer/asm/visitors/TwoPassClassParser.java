@@ -0,0 +1,42 @@
+package org.honton.chas.analyzer.asm.visitors;
+
+import java.util.Set;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.signature.SignatureVisitor;
+
+/**
+ * The reference analysis of a class: the constant pool is parsed by ConstantPoolParser, then every
+ * instruction of the class is visited by ASM.
+ */
+final class TwoPassClassParser {
+  private TwoPassClassParser() {}
+
+  /**
+   * Find the classes referenced by a class.
+   *
+   * @param byteCode The class file bytes
+   * @return The set of referenced class names
+   */
+  static Set<String> getDependencies(byte[] byteCode) {
+    ResultCollector resultCollector = new ResultCollector();
+    for (String name : ConstantPoolParser.getConstantPoolClassReferences(byteCode)) {
+      resultCollector.addName(name);
+    }
+
+    AnnotationVisitor annotationVisitor = new DefaultAnnotationVisitor(resultCollector);
+    SignatureVisitor signatureVisitor = new DefaultSignatureVisitor(resultCollector);
+    FieldVisitor fieldVisitor = new DefaultFieldVisitor(annotationVisitor, resultCollector);
+    MethodVisitor mv =
+        new DefaultMethodVisitor(annotationVisitor, signatureVisitor, resultCollector);
+    ClassVisitor classVisitor =
+        new DefaultClassVisitor(
+            signatureVisitor, annotationVisitor, fieldVisitor, mv, resultCollector);
+
+    new ClassReader(byteCode).accept(classVisitor, 0);
+    return resultCollector.getDependencies();
+  }
+}
@@ -0,0 +1,26 @@
+package org.honton.chas.analyzer.asm.visitors.testcases;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/** Types referenced by the API, by private members, and by method bodies. */
+public class ApiCases implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  protected transient CRC32 checksum;
+
+  private transient AtomicInteger counter;
+
+  @Deprecated
+  public List<String> names(Supplier<String> supplier) {
+    StringBuilder builder = new StringBuilder(supplier.get());
+    return List.of(builder.toString());
+  }
+
+  private Thread thread() {
+    return Thread.currentThread();
+  }
+}
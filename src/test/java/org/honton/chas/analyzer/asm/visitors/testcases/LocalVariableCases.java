@@ -0,0 +1,33 @@
+package org.honton.chas.analyzer.asm.visitors.testcases;
+
+import java.io.Serializable;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/** Types referenced only by the local variable tables and local variable annotations. */
+public class LocalVariableCases<T> {
+
+  public int descriptorOnly() {
+    Serializable serializable = "serializable";
+    return serializable.hashCode();
+  }
+
+  public T signature(Supplier<T> supplier) {
+    AtomicReference<T> reference = new AtomicReference<>(supplier.get());
+    T value = reference.get();
+    return value;
+  }
+
+  public int annotated(String text) {
+    @TypeUseMarker(
+        value = CRC32.class,
+        kind = ElementType.LOCAL_VARIABLE,
+        retention = @Retention(RetentionPolicy.SOURCE))
+    String annotated = text;
+    return annotated.length();
+  }
+}
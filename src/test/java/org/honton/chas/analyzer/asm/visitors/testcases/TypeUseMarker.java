@@ -0,0 +1,16 @@
+package org.honton.chas.analyzer.asm.visitors.testcases;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE_USE)
+public @interface TypeUseMarker {
+  Class<?> value();
+
+  ElementType kind() default ElementType.TYPE_USE;
+
+  Retention[] retention() default {};
+}
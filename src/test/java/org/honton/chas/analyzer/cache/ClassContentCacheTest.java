@@ -0,0 +1,103 @@
+package org.honton.chas.analyzer.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ClassContentCacheTest {
+  @TempDir Path tempDir;
+  @Mock Log log;
+
+  @Test
+  void testContentRoundTrip() {
+    ClassContentCache cache = new ClassContentCache(tempDir, "full");
+    Assertions.assertNull(cache.get("a/b/c.class", 0x1234L, 100));
+
+    cache.put("a/b/c.class", 0x1234L, 100, Set.of("x.y.z"));
+    Assertions.assertEquals(Set.of("x.y.z"), cache.get("a/b/c.class", 0x1234L, 100));
+    cache.write(log);
+
+    ClassContentCache reopened = new ClassContentCache(tempDir, "full");
+    Assertions.assertEquals(Set.of("x.y.z"), reopened.get("a/b/c.class", 0x1234L, 100));
+    Assertions.assertNull(reopened.get("a/b/c.class", 0x1235L, 100));
+    Assertions.assertNull(reopened.get("a/b/c.class", 0x1234L, 101));
+    Assertions.assertNull(new ClassContentCache(tempDir, "fast").get("a/b/c.class", 0x1234L, 100));
+  }
+
+  @Test
+  void testConcurrentBuildsMerge() {
+    ClassContentCache first = new ClassContentCache(tempDir, "full");
+    ClassContentCache second = new ClassContentCache(tempDir, "full");
+    for (int i = 0; i < 200; ++i) {
+      first.put("p/C" + i + ".class", i, i, Set.of("p.First"));
+      second.put("q/C" + i + ".class", i, i, Set.of("q.Second"));
+    }
+    first.write(log);
+    second.write(log);
+
+    ClassContentCache reopened = new ClassContentCache(tempDir, "full");
+    for (int i = 0; i < 200; ++i) {
+      Assertions.assertEquals(Set.of("p.First"), reopened.get("p/C" + i + ".class", i, i));
+      Assertions.assertEquals(Set.of("q.Second"), reopened.get("q/C" + i + ".class", i, i));
+    }
+  }
+
+  private List<String> files() throws IOException {
+    try (Stream<Path> files = Files.list(tempDir)) {
+      return files.map(path -> path.getFileName().toString()).collect(Collectors.toList());
+    }
+  }
+
+  @Test
+  void testDeltaCompactedOnceLarge() throws IOException {
+    ClassContentCache cache = new ClassContentCache(tempDir, "full");
+    cache.put("a/b/c.class", 1, 1, Set.of("x.y.z"));
+    cache.write(log);
+    // a small write appends to the delta of the shard
+    List<String> files = files();
+    Assertions.assertEquals(1, files.size());
+    Assertions.assertTrue(files.get(0).endsWith(".delta"), files.get(0));
+
+    Set<String> classes = new HashSet<>();
+    for (int i = 0; i < 2000; ++i) {
+      classes.add("p.SomewhatLongerClassName" + i);
+    }
+    for (int i = 0; i < 2; ++i) {
+      cache.put("a/b/c.class", 1, 1, classes);
+      cache.write(log);
+    }
+
+    // the delta is merged into a version of the shard, named by a pointer file
+    files = files();
+    Assertions.assertEquals(2, files.size(), files::toString);
+    Assertions.assertTrue(files.stream().noneMatch(name -> name.endsWith(".delta")));
+    Assertions.assertEquals(
+        classes, new ClassContentCache(tempDir, "full").get("a/b/c.class", 1, 1));
+  }
+
+  @Test
+  void testDamagedDeltaKeepsEarlierBatches() throws IOException {
+    ClassContentCache cache = new ClassContentCache(tempDir, "full");
+    cache.put("a/b/c.class", 1, 1, Set.of("x.y.z"));
+    cache.write(log);
+    Files.write(
+        tempDir.resolve(files().get(0)), new byte[] {0, 0, 0, 9, 1, 2}, StandardOpenOption.APPEND);
+
+    Assertions.assertEquals(
+        Set.of("x.y.z"), new ClassContentCache(tempDir, "full").get("a/b/c.class", 1, 1));
+  }
+}
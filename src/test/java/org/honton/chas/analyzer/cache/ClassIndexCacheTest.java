@@ -0,0 +1,232 @@
+package org.honton.chas.analyzer.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.apache.maven.plugin.logging.Log;
+import org.honton.chas.analyzer.api.ClassAnalyzer;
+import org.honton.chas.analyzer.api.DependencyAnalyzer;
+import org.honton.chas.analyzer.api.LocationCollector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ClassIndexCacheTest {
+  @TempDir Path tempDir;
+  @Mock Log log;
+  @Mock LocationCollector delegate;
+  @Mock DependencyAnalyzer dependencyAnalyzer;
+  @Mock ClassAnalyzer classAnalyzer;
+
+  private ClassIndexCache cache;
+  private Path jar;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    cache = new ClassIndexCache(tempDir.resolve("cache"), "full");
+    jar = tempDir.resolve("test.jar");
+    Files.write(jar, "not really a jar".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void testClassesRoundTrip() {
+    Assertions.assertNull(cache.readClasses(jar, log));
+
+    cache.writeClasses(jar, Set.of("a.b.c", "x.y.z"), log);
+
+    Assertions.assertEquals(Set.of("a.b.c", "x.y.z"), cache.readClasses(jar, log));
+  }
+
+  @Test
+  void testDependenciesRoundTrip() {
+    Map<String, Set<String>> dependencies =
+        Map.of("a.b.c", Set.of("x.y.z", "java.lang.Object"), "x.y.z", Set.of());
+    Assertions.assertNull(cache.readDependencies(jar, log));
+
+    cache.writeDependencies(jar, dependencies, log);
+
+    Assertions.assertEquals(dependencies, cache.readDependencies(jar, log));
+  }
+
+  @Test
+  void testMappedDependencies() throws IOException {
+    Map<String, Set<String>> dependencies = new HashMap<>();
+    for (int i = 0; i < 1000; ++i) {
+      dependencies.put("p.C" + i, Set.of("p.C" + (i + 1), "java.lang.Object"));
+    }
+    dependencies.put("p.\u00e9t\u00e9", Set.of());
+    Assertions.assertNull(cache.mapDependencies(jar, log));
+
+    cache.writeDependencies(jar, dependencies, log);
+
+    MappedDependencies mapped = cache.mapDependencies(jar, log);
+    Assertions.assertEquals(dependencies.size(), mapped.size());
+    Assertions.assertEquals(Set.of("p.C1", "java.lang.Object"), mapped.get("p.C0"));
+    Assertions.assertEquals(Set.of(), mapped.get("p.\u00e9t\u00e9"));
+    Assertions.assertNull(mapped.get("p.C1000"));
+    Assertions.assertEquals(dependencies, mapped.toMap());
+
+    Files.setLastModifiedTime(jar, FileTime.fromMillis(0));
+    Assertions.assertNull(cache.mapDependencies(jar, log));
+  }
+
+  @Test
+  void testCachedDependenciesAreNotReanalyzed() {
+    cache.writeDependencies(jar, Map.of("a.b.c", Set.of("x.y.z")), log);
+    DependencyAnalyzer analyzer = new CachingDependencyAnalyzer(cache, dependencyAnalyzer);
+
+    try (ClassAnalyzer opened = analyzer.open(jar, log)) {
+      Assertions.assertEquals(Set.of("x.y.z"), opened.analyze("a.b.c"));
+    }
+
+    Mockito.verifyNoInteractions(dependencyAnalyzer);
+  }
+
+  @Test
+  void testAnalyzedClassesAccumulate() {
+    DependencyAnalyzer analyzer = new CachingDependencyAnalyzer(cache, dependencyAnalyzer);
+    Mockito.when(dependencyAnalyzer.open(jar, log)).thenReturn(classAnalyzer);
+    Mockito.when(classAnalyzer.analyze("a.b.c")).thenReturn(Set.of("x.y.z"));
+    Mockito.when(classAnalyzer.analyze("x.y.z")).thenReturn(Set.of());
+
+    try (ClassAnalyzer first = analyzer.open(jar, log)) {
+      Assertions.assertEquals(Set.of("x.y.z"), first.analyze("a.b.c"));
+    }
+    try (ClassAnalyzer second = analyzer.open(jar, log)) {
+      Assertions.assertEquals(Set.of("x.y.z"), second.analyze("a.b.c"));
+      Assertions.assertEquals(Set.of(), second.analyze("x.y.z"));
+    }
+
+    Assertions.assertEquals(
+        Map.of("a.b.c", Set.of("x.y.z"), "x.y.z", Set.of()), cache.readAnalyzedClasses(jar, log));
+    Mockito.verify(classAnalyzer).analyze("a.b.c");
+  }
+
+  @Test
+  void testModifiedJarIsNotRead() throws IOException {
+    cache.writeClasses(jar, Set.of("a.b.c"), log);
+
+    Files.setLastModifiedTime(jar, FileTime.fromMillis(0));
+
+    Assertions.assertNull(cache.readClasses(jar, log));
+  }
+
+  @Test
+  void testCachingLocationCollector() {
+    Mockito.when(delegate.list(jar, log)).thenReturn(Set.of("a.b.c"));
+    LocationCollector collector = new CachingLocationCollector(cache, delegate);
+
+    Assertions.assertEquals(Set.of("a.b.c"), collector.list(jar, log));
+    Assertions.assertEquals(Set.of("a.b.c"), collector.list(jar, log));
+    Mockito.verify(delegate).list(jar, log);
+  }
+
+  @Test
+  void testTruncatedEntryIsMiss() throws IOException {
+    Map<String, Set<String>> dependencies = new HashMap<>();
+    for (int i = 0; i < 100; ++i) {
+      dependencies.put("p.C" + i, Set.of("p.C" + (i + 1)));
+    }
+    cache.writeDependencies(jar, dependencies, log);
+    Path entry;
+    try (Stream<Path> entries = Files.list(tempDir.resolve("cache"))) {
+      entry =
+          entries
+              .filter(path -> path.getFileName().toString().endsWith(".v0"))
+              .findFirst()
+              .orElseThrow();
+    }
+    byte[] bytes = Files.readAllBytes(entry);
+    Files.write(entry, Arrays.copyOf(bytes, bytes.length - 100));
+
+    DependencyAnalyzer analyzer = new CachingDependencyAnalyzer(cache, dependencyAnalyzer);
+    Mockito.when(dependencyAnalyzer.open(jar, log)).thenReturn(classAnalyzer);
+    Mockito.when(classAnalyzer.analyze(Mockito.anyString())).thenReturn(Set.of());
+    try (ClassAnalyzer opened = analyzer.open(jar, log)) {
+      for (String className : dependencies.keySet()) {
+        Assertions.assertNotNull(opened.analyze(className));
+      }
+    }
+
+    // the malformed entry is dropped, and the classes analyzed instead are kept
+    Assertions.assertNull(cache.mapDependencies(jar, log));
+    Assertions.assertTrue(
+        dependencies.keySet().containsAll(cache.readAnalyzedClasses(jar, log).keySet()));
+    Mockito.verify(classAnalyzer, Mockito.atLeastOnce()).analyze(Mockito.anyString());
+  }
+
+  @Test
+  void testTableWithoutEmptySlotIsMiss() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    MappedDependencies.write(new DataOutputStream(bytes), Map.of("a.B", Set.of()));
+    ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+    // both slots of the table refer to the one record
+    int record = Math.max(buffer.getInt(8), buffer.getInt(12));
+    buffer.putInt(8, record).putInt(12, record);
+
+    MappedDependencies mapped = MappedDependencies.read(buffer);
+    Assertions.assertEquals(Set.of(), mapped.get("a.B"));
+    Assertions.assertFalse(mapped.malformed());
+    Assertions.assertNull(mapped.get("x.Y"));
+    Assertions.assertTrue(mapped.malformed());
+  }
+
+  @Test
+  void testMappedEntryReplacedUnderNewName() throws IOException {
+    cache.writeAnalyzedClasses(jar, Map.of("a.b.c", Set.of("x.y.z")), log);
+    MappedDependencies first = cache.mapAnalyzedClasses(jar, log);
+
+    cache.writeAnalyzedClasses(jar, Map.of("a.b.c", Set.of("x.y.z"), "x.y.z", Set.of()), log);
+    cache.writeAnalyzedClasses(jar, Map.of("a.b.c", Set.of(), "x.y.z", Set.of()), log);
+
+    // the mapping of a replaced version remains readable
+    Assertions.assertNull(first.get("x.y.z"));
+    Assertions.assertEquals(Set.of(), cache.mapAnalyzedClasses(jar, log).get("a.b.c"));
+    // the pointer and the current version are all that remain
+    try (Stream<Path> entries = Files.list(tempDir.resolve("cache"))) {
+      Assertions.assertEquals(2, entries.count());
+    }
+  }
+
+  @Test
+  void testWriteDeletesEveryEarlierVersion() throws IOException {
+    for (int i = 0; i < 3; ++i) {
+      cache.writeDependencies(jar, Map.of("a.b.c", Set.of("x.y.z" + i)), log);
+    }
+    Path current;
+    try (Stream<Path> entries = Files.list(tempDir.resolve("cache"))) {
+      current =
+          entries
+              .filter(path -> path.getFileName().toString().endsWith(".v2"))
+              .findFirst()
+              .orElseThrow();
+    }
+    // a version left behind while it was still mapped
+    String name = current.getFileName().toString();
+    Files.copy(current, current.resolveSibling(name.substring(0, name.length() - 1) + '0'));
+
+    cache.writeDependencies(jar, Map.of("a.b.c", Set.of("x.y.z")), log);
+
+    try (Stream<Path> entries = Files.list(tempDir.resolve("cache"))) {
+      Assertions.assertEquals(
+          1, entries.filter(path -> path.getFileName().toString().contains(".v")).count());
+    }
+    Assertions.assertEquals(Set.of("x.y.z"), cache.readDependencies(jar, log).get("a.b.c"));
+  }
+}
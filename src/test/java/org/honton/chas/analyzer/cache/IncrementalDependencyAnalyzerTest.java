@@ -0,0 +1,107 @@
+package org.honton.chas.analyzer.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.maven.plugin.logging.Log;
+import org.honton.chas.analyzer.api.DependencyAnalyzer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class IncrementalDependencyAnalyzerTest {
+  @TempDir Path tempDir;
+  @Mock Log log;
+  @Mock DependencyAnalyzer delegate;
+
+  private Path classes;
+  private DependencyAnalyzer analyzer;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    classes = tempDir.resolve("classes");
+    Files.createDirectories(classes.resolve("a"));
+    Files.write(classes.resolve("a/A.class"), new byte[] {1});
+    Files.write(classes.resolve("a/A$1.class"), new byte[] {2});
+    Files.write(classes.resolve("a/B.class"), new byte[] {3});
+    analyzer = new IncrementalDependencyAnalyzer(tempDir.resolve("state"), "full", delegate);
+    Mockito.when(delegate.analyze(classes, log))
+        .thenReturn(Map.of("a.A", Set.of("x.X"), "a.B", Set.of("y.Y")));
+  }
+
+  @Test
+  void testUnchangedNotAnalyzed() {
+    Map<String, Set<String>> expected = Map.of("a.A", Set.of("x.X"), "a.B", Set.of("y.Y"));
+    Assertions.assertEquals(expected, analyzer.analyze(classes, log));
+    Assertions.assertEquals(expected, analyzer.analyze(classes, log));
+
+    Mockito.verify(delegate).analyze(classes, log);
+    Mockito.verifyNoMoreInteractions(delegate);
+  }
+
+  @Test
+  void testChangedInnerClassAnalyzesOuter() throws IOException {
+    analyzer.analyze(classes, log);
+    Path inner = classes.resolve("a/A$1.class");
+    Files.setLastModifiedTime(
+        inner, FileTime.fromMillis(Files.getLastModifiedTime(inner).toMillis() + 2000));
+    Mockito.when(
+            delegate.analyze(
+                Mockito.eq(classes), Mockito.argThat(paths -> paths.size() == 2), Mockito.eq(log)))
+        .thenReturn(Map.of("a.A", Set.of("z.Z")));
+
+    Assertions.assertEquals(
+        Map.of("a.A", Set.of("z.Z"), "a.B", Set.of("y.Y")), analyzer.analyze(classes, log));
+    Mockito.verify(delegate)
+        .analyze(
+            Mockito.eq(classes),
+            Mockito.argThat(
+                paths ->
+                    paths.containsAll(List.of("a/A.class", "a/A$1.class")) && paths.size() == 2),
+            Mockito.eq(log));
+  }
+
+  @Test
+  void testRemovedClassDropped() throws IOException {
+    analyzer.analyze(classes, log);
+    Files.delete(classes.resolve("a/B.class"));
+
+    Assertions.assertEquals(Map.of("a.A", Set.of("x.X")), analyzer.analyze(classes, log));
+    Mockito.verify(delegate).analyze(classes, log);
+    Mockito.verifyNoMoreInteractions(delegate);
+  }
+
+  @Test
+  void testOpenedInOtherModeDelegated() {
+    DependencyAnalyzer apiOpened =
+        new IncrementalDependencyAnalyzer(tempDir.resolve("state"), "full-api", delegate, false);
+    Mockito.when(delegate.open(classes, log)).thenReturn(className -> Set.of("z.Z"));
+
+    Assertions.assertEquals(Set.of("x.X"), apiOpened.analyze(classes, log).get("a.A"));
+    Assertions.assertEquals(Set.of("z.Z"), apiOpened.open(classes, log).analyze("a.A"));
+  }
+
+  @Test
+  void testChangedPackageInfoAnalyzed() throws IOException {
+    Path packageInfo = Files.write(classes.resolve("a/package-info.class"), new byte[] {1});
+    analyzer.analyze(classes, log);
+    Files.write(packageInfo, new byte[] {1, 2});
+    Mockito.when(delegate.analyze(classes, List.of("a/package-info.class"), log))
+        .thenReturn(Map.of("a.package-info", Set.of("w.W")));
+
+    Assertions.assertEquals(
+        Map.of("a.A", Set.of("x.X"), "a.B", Set.of("y.Y"), "a.package-info", Set.of("w.W")),
+        analyzer.analyze(classes, log));
+    Mockito.verify(delegate).analyze(classes, List.of("a/package-info.class"), log);
+  }
+}
@@ -0,0 +1,165 @@
+package org.honton.chas.analyzer.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.aether.DefaultSessionData;
+import org.eclipse.aether.SessionData;
+import org.honton.chas.analyzer.api.ClassAnalyzer;
+import org.honton.chas.analyzer.api.DependencyAnalyzer;
+import org.honton.chas.analyzer.api.LocationCollector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class SessionClassIndexTest {
+  @TempDir Path tempDir;
+  @Mock Log log;
+  @Mock LocationCollector locationCollector;
+  @Mock DependencyAnalyzer dependencyAnalyzer;
+  @Mock ClassAnalyzer classAnalyzer;
+
+  private SessionClassIndex index;
+  private Path jar;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    index = new SessionClassIndex(1000);
+    jar = tempDir.resolve("test.jar");
+    Files.write(jar, "not really a jar".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void testOneIndexPerSession() {
+    SessionData data = new DefaultSessionData();
+    SessionClassIndex first = SessionClassIndex.of(data, 1000);
+
+    Assertions.assertSame(first, SessionClassIndex.of(data, 1000));
+    Assertions.assertNotSame(first, SessionClassIndex.of(new DefaultSessionData(), 1000));
+  }
+
+  @Test
+  void testListedOnce() {
+    LocationCollector collector = new SessionLocationCollector(index, locationCollector);
+    Mockito.when(locationCollector.list(jar, log)).thenReturn(Set.of("a.b.c"));
+
+    Assertions.assertEquals(Set.of("a.b.c"), collector.list(jar, log));
+    Assertions.assertEquals(Set.of("a.b.c"), collector.list(jar, log));
+
+    Mockito.verify(locationCollector).list(jar, log);
+  }
+
+  @Test
+  void testDirectoryNotHeld() {
+    LocationCollector collector = new SessionLocationCollector(index, locationCollector);
+    Mockito.when(locationCollector.list(tempDir, log)).thenReturn(Set.of("a.b.c"));
+
+    collector.list(tempDir, log);
+    collector.list(tempDir, log);
+
+    Mockito.verify(locationCollector, Mockito.times(2)).list(tempDir, log);
+  }
+
+  @Test
+  void testModifiedJarListedAgain() throws IOException {
+    LocationCollector collector = new SessionLocationCollector(index, locationCollector);
+    Mockito.when(locationCollector.list(jar, log)).thenReturn(Set.of("a.b.c"));
+
+    collector.list(jar, log);
+    Files.write(jar, "a different jar".getBytes(StandardCharsets.UTF_8));
+    collector.list(jar, log);
+
+    Mockito.verify(locationCollector, Mockito.times(2)).list(jar, log);
+  }
+
+  @Test
+  void testAnalyzedOncePerVariant() {
+    Map<String, Set<String>> dependencies = Map.of("a.b.c", Set.of("x.y.z"));
+    Mockito.when(dependencyAnalyzer.analyze(jar, log)).thenReturn(dependencies);
+
+    DependencyAnalyzer full = new SessionDependencyAnalyzer(index, "full", dependencyAnalyzer);
+    Assertions.assertEquals(dependencies, full.analyze(jar, log));
+    Assertions.assertEquals(dependencies, full.analyze(jar, log));
+    new SessionDependencyAnalyzer(index, "fast", dependencyAnalyzer).analyze(jar, log);
+
+    Mockito.verify(dependencyAnalyzer, Mockito.times(2)).analyze(jar, log);
+  }
+
+  @Test
+  void testAnalyzedClassesShared() {
+    DependencyAnalyzer analyzer = new SessionDependencyAnalyzer(index, "full", dependencyAnalyzer);
+    Mockito.when(dependencyAnalyzer.open(jar, log)).thenReturn(classAnalyzer);
+    Mockito.when(classAnalyzer.analyze("a.b.c")).thenReturn(Set.of("x.y.z"));
+
+    try (ClassAnalyzer main = analyzer.open(jar, log)) {
+      Assertions.assertEquals(Set.of("x.y.z"), main.analyze("a.b.c"));
+    }
+    try (ClassAnalyzer test = analyzer.open(jar, log)) {
+      Assertions.assertEquals(Set.of("x.y.z"), test.analyze("a.b.c"));
+    }
+
+    Mockito.verify(dependencyAnalyzer).open(jar, log);
+    Mockito.verify(classAnalyzer).analyze("a.b.c");
+  }
+
+  @Test
+  void testLeastRecentlyUsedEvicted() throws IOException {
+    index = new SessionClassIndex(3);
+    LocationCollector collector = new SessionLocationCollector(index, locationCollector);
+    Path other = tempDir.resolve("other.jar");
+    Files.write(other, "another jar".getBytes(StandardCharsets.UTF_8));
+    Mockito.when(locationCollector.list(jar, log)).thenReturn(Set.of("a.b.c", "a.b.d"));
+    Mockito.when(locationCollector.list(other, log)).thenReturn(Set.of("x.y.z", "x.y.w"));
+
+    collector.list(jar, log);
+    collector.list(other, log);
+    Assertions.assertEquals(2, index.size());
+    collector.list(other, log);
+    collector.list(jar, log);
+
+    Mockito.verify(locationCollector, Mockito.times(2)).list(jar, log);
+    Mockito.verify(locationCollector).list(other, log);
+  }
+
+  @Test
+  void testConcurrentListingAwaited() throws Exception {
+    CountDownLatch listing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    LocationCollector collector = new SessionLocationCollector(index, locationCollector);
+    Mockito.when(locationCollector.list(jar, log))
+        .thenAnswer(
+            invocation -> {
+              listing.countDown();
+              release.await();
+              return Set.of("a.b.c");
+            });
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<Set<String>> first = executor.submit(() -> collector.list(jar, log));
+      listing.await();
+      Future<Set<String>> second = executor.submit(() -> collector.list(jar, log));
+      release.countDown();
+
+      Assertions.assertEquals(Set.of("a.b.c"), first.get());
+      Assertions.assertEquals(Set.of("a.b.c"), second.get());
+    } finally {
+      executor.shutdown();
+    }
+    Mockito.verify(locationCollector).list(jar, log);
+  }
+}
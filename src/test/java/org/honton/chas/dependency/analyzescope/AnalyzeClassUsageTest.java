@@ -0,0 +1,284 @@
+package org.honton.chas.dependency.analyzescope;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.plugin.logging.Log;
+import org.honton.chas.analyzer.api.ClassAnalyzer;
+import org.honton.chas.analyzer.api.DependencyAnalyzer;
+import org.honton.chas.analyzer.api.LocationCollector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class AnalyzeClassUsageTest {
+  private static final int DEPTH = 100_000;
+
+  @Mock Log log;
+
+  private static Artifact artifact(String artifactId) {
+    Artifact artifact =
+        new DefaultArtifact(
+            "g", artifactId, "1", "compile", "jar", null, new DefaultArtifactHandler());
+    artifact.setFile(new File(artifactId));
+    return artifact;
+  }
+
+  private static String chainClass(int link) {
+    return "chain.C" + link;
+  }
+
+  @Test
+  void testDeepChainResolved() {
+    resolveDeepChain(Runnable::run);
+  }
+
+  @Test
+  void testDeepChainResolvedConcurrently() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      resolveDeepChain(pool);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private void resolveDeepChain(Executor executor) {
+    Artifact working = artifact("working");
+    Artifact chain = artifact("chain");
+    Artifact end = artifact("end");
+
+    Set<String> chainClasses = new HashSet<>();
+    for (int link = 0; link <= DEPTH; ++link) {
+      chainClasses.add(chainClass(link));
+    }
+    // each class of the chain requires only the next, and the last requires the class of end
+    LocationCollector locationCollector =
+        (location, log) ->
+            location.equals(chain.getFile().toPath())
+                ? chainClasses
+                : location.equals(end.getFile().toPath()) ? Set.of("end.E") : Set.of();
+    DependencyAnalyzer dependencyAnalyzer =
+        new DependencyAnalyzer() {
+          @Override
+          public Map<String, Set<String>> analyze(Path location, Log log) {
+            return Map.of("working.W", Set.of(chainClass(0)));
+          }
+
+          @Override
+          public ClassAnalyzer open(Path location, Log log) {
+            if (!location.equals(chain.getFile().toPath())) {
+              return className -> Set.of();
+            }
+            return className -> {
+              int link = Integer.parseInt(className.substring("chain.C".length()));
+              return Set.of(link < DEPTH ? chainClass(link + 1) : "end.E");
+            };
+          }
+        };
+
+    try (AnalyzeClassUsage analyzer =
+        new AnalyzeClassUsage(locationCollector, dependencyAnalyzer, executor)) {
+      analyzer.addImpliedDependencies(log, List.of(working));
+      Set<Artifact> declared = Set.of(chain, end);
+      analyzer.addDeclaredDependencies(log, declared);
+      analyzer.addUsedClassNames(log, working);
+      analyzer.setDeclaredDependencies(declared);
+      analyzer.setClasspathDependencies(Set.of(working, chain, end));
+      analyzer.removeIgnoredUsedUndeclaredDependencies(null);
+
+      // end is used only when the walk reaches the end of the chain
+      Assertions.assertFalse(analyzer.logDeclaredButUnused(log));
+      Assertions.assertFalse(analyzer.logUsedButUndeclared(log));
+    }
+  }
+
+  @Test
+  void testWideFrontierOpensArtifactOnce() {
+    Artifact working = artifact("working");
+    Artifact wide = artifact("wide");
+    Artifact unused = artifact("unused");
+
+    Set<String> wideClasses = new HashSet<>();
+    for (int i = 0; i < 1000; ++i) {
+      wideClasses.add("wide.C" + i);
+    }
+    wideClasses.add("wide.Shared");
+    LocationCollector locationCollector =
+        (location, log) ->
+            location.equals(wide.getFile().toPath())
+                ? wideClasses
+                : location.equals(unused.getFile().toPath()) ? Set.of("unused.U") : Set.of();
+    AtomicInteger opened = new AtomicInteger();
+    Set<String> analyzed = ConcurrentHashMap.newKeySet();
+    // every class of the frontier requires the same class
+    DependencyAnalyzer dependencyAnalyzer =
+        new DependencyAnalyzer() {
+          @Override
+          public Map<String, Set<String>> analyze(Path location, Log log) {
+            return Map.of("working.W", wideClasses);
+          }
+
+          @Override
+          public ClassAnalyzer open(Path location, Log log) {
+            opened.incrementAndGet();
+            return className -> {
+              Assertions.assertTrue(analyzed.add(className), className);
+              return Set.of("wide.Shared");
+            };
+          }
+        };
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try (AnalyzeClassUsage analyzer =
+        new AnalyzeClassUsage(locationCollector, dependencyAnalyzer, pool)) {
+      analyzer.addImpliedDependencies(log, List.of(working));
+      Set<Artifact> declared = Set.of(wide, unused);
+      analyzer.addDeclaredDependencies(log, declared);
+      analyzer.addUsedClassNames(log, working);
+      analyzer.setDeclaredDependencies(declared);
+
+      Assertions.assertEquals(1, opened.get());
+      Assertions.assertEquals(wideClasses, analyzed);
+      Assertions.assertTrue(analyzer.logDeclaredButUnused(log));
+      Mockito.verify(log).warn("    " + unused);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void testPackageGranularitySplitsSharedPackages() {
+    Artifact working = artifact("working");
+    Artifact lib = artifact("lib");
+    Artifact dep = artifact("dep");
+    Artifact first = artifact("first");
+    Artifact second = artifact("second");
+
+    Map<Path, Set<String>> listings =
+        Map.of(
+            lib.getFile().toPath(), Set.of("lib.A", "lib.B"),
+            dep.getFile().toPath(), Set.of("dep.D"),
+            first.getFile().toPath(), Set.of("split.S1"),
+            second.getFile().toPath(), Set.of("split.S2"));
+    LocationCollector locationCollector =
+        (location, log) -> listings.getOrDefault(location, Set.of());
+    Set<String> analyzed = ConcurrentHashMap.newKeySet();
+    // the project reaches lib.A and split.S1 only
+    DependencyAnalyzer dependencyAnalyzer =
+        new DependencyAnalyzer() {
+          @Override
+          public Map<String, Set<String>> analyze(Path location, Log log) {
+            return Map.of("working.W", Set.of("lib.A", "split.S1"));
+          }
+
+          @Override
+          public ClassAnalyzer open(Path location, Log log) {
+            return className -> {
+              analyzed.add(className);
+              return className.equals("lib.B") ? Set.of("dep.D") : Set.of();
+            };
+          }
+        };
+
+    try (AnalyzeClassUsage analyzer =
+        new AnalyzeClassUsage(locationCollector, dependencyAnalyzer, Runnable::run, true)) {
+      analyzer.addImpliedDependencies(log, List.of(working));
+      Set<Artifact> declared = Set.of(lib, dep, first, second);
+      analyzer.addDeclaredDependencies(log, declared);
+      analyzer.addUsedClassNames(log, working);
+      analyzer.setDeclaredDependencies(declared);
+
+      // the whole package of lib is analyzed, while the split package is resolved by class
+      Assertions.assertEquals(Set.of("lib.A", "lib.B", "dep.D", "split.S1"), analyzed);
+      Assertions.assertTrue(analyzer.logDeclaredButUnused(log));
+      Mockito.verify(log).warn("    " + second);
+      Mockito.verify(log, Mockito.never()).warn("    " + dep);
+      Assertions.assertFalse(analyzer.logMultipleDefinitions(log));
+    }
+  }
+
+  @Test
+  void testListingMessagesLoggedInOrder() {
+    Artifact first = artifact("first");
+    Artifact missing = artifact("missing");
+    missing.setFile(null);
+    Artifact last = artifact("last");
+    // the first listing finishes after the last
+    LocationCollector locationCollector =
+        (location, log) -> {
+          if (location.equals(first.getFile().toPath())) {
+            try {
+              Thread.sleep(50);
+            } catch (InterruptedException interruptedException) {
+              Thread.currentThread().interrupt();
+            }
+          }
+          log.warn("Listed " + location);
+          return Set.of();
+        };
+
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try (AnalyzeClassUsage analyzer =
+        new AnalyzeClassUsage(locationCollector, Mockito.mock(DependencyAnalyzer.class), pool)) {
+      analyzer.addDeclaredDependencies(log, List.of(first, missing, last));
+
+      InOrder inOrder = Mockito.inOrder(log);
+      inOrder.verify(log).warn("Listed " + first.getFile().toPath());
+      inOrder.verify(log).info("g:missing:1 does not have file");
+      inOrder.verify(log).warn("Listed " + last.getFile().toPath());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void testRedefiningDependencyIsUsed() {
+    Artifact working = artifact("working");
+    Artifact redefining = artifact("redefining");
+    // the project defines and references a class which the dependency defines too
+    LocationCollector locationCollector =
+        (location, log) ->
+            location.equals(redefining.getFile().toPath()) ? Set.of("shared.S") : Set.of();
+    DependencyAnalyzer dependencyAnalyzer =
+        new DependencyAnalyzer() {
+          @Override
+          public Map<String, Set<String>> analyze(Path location, Log log) {
+            return Map.of("working.W", Set.of("shared.S"), "shared.S", Set.of());
+          }
+
+          @Override
+          public ClassAnalyzer open(Path location, Log log) {
+            return className -> Set.of();
+          }
+        };
+
+    try (AnalyzeClassUsage analyzer =
+        new AnalyzeClassUsage(locationCollector, dependencyAnalyzer, Runnable::run)) {
+      analyzer.addImpliedDependencies(log, List.of(working));
+      Set<Artifact> declared = Set.of(redefining);
+      analyzer.addDeclaredDependencies(log, declared);
+      analyzer.addUsedClassNames(log, working);
+      analyzer.setDeclaredDependencies(declared);
+
+      Assertions.assertFalse(analyzer.logDeclaredButUnused(log));
+      Mockito.verify(log)
+          .error("Duplicate artifact for shared.S; " + working + " and " + redefining);
+    }
+  }
+}
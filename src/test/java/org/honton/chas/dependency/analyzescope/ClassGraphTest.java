@@ -0,0 +1,60 @@
+package org.honton.chas.dependency.analyzescope;
+
+import java.util.List;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ClassGraphTest {
+
+  @Test
+  void testIdsSurviveGrowth() {
+    ClassGraph graph = new ClassGraph();
+    int count = 10_000;
+    for (int i = 0; i < count; ++i) {
+      Assertions.assertEquals(i, graph.id("a.C" + i));
+    }
+    Assertions.assertEquals(count, graph.size());
+    for (int i = 0; i < count; ++i) {
+      Assertions.assertEquals(i, graph.id("a.C" + i));
+      Assertions.assertEquals("a.C" + i, graph.name(i));
+      Assertions.assertEquals(ClassGraph.NONE, graph.provider(i));
+      Assertions.assertEquals(ClassGraph.NONE, graph.resolution(i));
+    }
+  }
+
+  @Test
+  void testProvidersAndResolutions() {
+    ClassGraph graph = new ClassGraph();
+    Artifact artifact =
+        new DefaultArtifact("g", "a", "1", "compile", "jar", null, new DefaultArtifactHandler());
+    int artifactId = graph.artifactId(artifact);
+    Assertions.assertEquals(artifactId, graph.artifactId(artifact));
+    Assertions.assertSame(artifact, graph.artifact(artifactId));
+
+    int id = graph.id("a.A");
+    Assertions.assertEquals(ClassGraph.NONE, graph.setProvider(id, artifactId));
+    Assertions.assertEquals(artifactId, graph.setProvider(id, artifactId));
+    Assertions.assertEquals(ClassGraph.NONE, graph.setResolution(id, artifactId));
+    Assertions.assertEquals(artifactId, graph.resolution(id));
+  }
+
+  @Test
+  void testEdges() {
+    ClassGraph graph = new ClassGraph();
+    int a = graph.id("a.A");
+    List<String> required = List.of("a.B", "a.A", "b.C");
+    graph.setEdges(a, required);
+    int b = graph.id("a.B");
+    graph.setEdges(b, List.of());
+
+    Assertions.assertEquals(3, graph.edgeCount(a));
+    for (int i = 0; i < required.size(); ++i) {
+      Assertions.assertEquals(required.get(i), graph.name(graph.edge(a, i)));
+    }
+    Assertions.assertEquals(0, graph.edgeCount(b));
+    Assertions.assertEquals(0, graph.edgeCount(graph.id("b.C")));
+  }
+}
@@ -0,0 +1,25 @@
+package org.honton.chas.dependency.analyzescope;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PlatformPackagesTest {
+  private final PlatformPackages platform = PlatformPackages.system();
+
+  @Test
+  void testPlatformClasses() {
+    Assertions.assertEquals("java.base", platform.module("java.lang.String"));
+    Assertions.assertEquals("java.base", platform.module("java.util.Map$Entry"));
+    Assertions.assertEquals("java.xml", platform.module("org.w3c.dom.Node"));
+    Assertions.assertEquals("java.sql", platform.module("javax.sql.DataSource"));
+    Assertions.assertTrue(platform.contains("jdk.internal.misc.Unsafe"));
+  }
+
+  @Test
+  void testOtherClasses() {
+    Assertions.assertFalse(platform.contains("javax.inject.Inject"));
+    Assertions.assertFalse(platform.contains("org.apache.maven.plugin.Mojo"));
+    Assertions.assertFalse(platform.contains("java.lang.String.Missing"));
+    Assertions.assertFalse(platform.contains("Unnamed"));
+  }
+}
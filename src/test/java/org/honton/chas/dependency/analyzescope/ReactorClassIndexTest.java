@@ -0,0 +1,85 @@
+package org.honton.chas.dependency.analyzescope;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.plugin.logging.Log;
+import org.honton.chas.analyzer.api.LocationCollector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ReactorClassIndexTest {
+  @Mock Log log;
+  @Mock LocationCollector locationCollector;
+
+  private static Artifact artifact(String artifactId, String file) {
+    Artifact artifact =
+        new DefaultArtifact(
+            "g", artifactId, "1", "compile", "jar", null, new DefaultArtifactHandler());
+    if (file != null) {
+      artifact.setFile(new File(file));
+    }
+    return artifact;
+  }
+
+  @Test
+  void testListsEachLocationOnce() {
+    Path location = Path.of("shared.jar");
+    Mockito.when(locationCollector.list(Mockito.eq(location), Mockito.any()))
+        .thenReturn(Set.of("a.A"));
+
+    ReactorClassIndex index = new ReactorClassIndex(locationCollector);
+    index.index(log, List.of(artifact("one", "shared.jar"), artifact("none", null)), Runnable::run);
+    index.index(log, List.of(artifact("two", "shared.jar")), Runnable::run);
+
+    Assertions.assertEquals(1, index.size());
+    Assertions.assertEquals(Set.of("a.A"), index.list(location, log));
+    Assertions.assertEquals(Set.of("a.A"), index.list(location, log));
+    Mockito.verify(locationCollector, Mockito.times(1)).list(Mockito.eq(location), Mockito.any());
+  }
+
+  @Test
+  void testDelegatesUnindexedLocation() {
+    Path location = Path.of("other.jar");
+    Mockito.when(locationCollector.list(location, log)).thenReturn(Set.of("b.B"));
+
+    ReactorClassIndex index = new ReactorClassIndex(locationCollector);
+
+    Assertions.assertEquals(Set.of("b.B"), index.list(location, log));
+    Assertions.assertEquals(0, index.size());
+  }
+
+  @Test
+  void testReplaysListingMessagesInIndexOrder() {
+    Mockito.when(locationCollector.list(Mockito.any(), Mockito.any()))
+        .thenAnswer(
+            invocation -> {
+              invocation.getArgument(1, Log.class).info("listing " + invocation.getArgument(0));
+              return Set.of();
+            });
+    List<Runnable> tasks = new ArrayList<>();
+
+    ReactorClassIndex index = new ReactorClassIndex(locationCollector);
+    index.index(log, List.of(artifact("one", "one.jar"), artifact("two", "two.jar")), tasks::add);
+    Collections.reverse(tasks);
+    tasks.forEach(Runnable::run);
+    Mockito.verifyNoInteractions(log);
+
+    index.replay();
+    InOrder inOrder = Mockito.inOrder(log);
+    inOrder.verify(log).info("listing one.jar");
+    inOrder.verify(log).info("listing two.jar");
+  }
+}